@@ -43,6 +43,7 @@ import com.kotcrab.vis.editor.module.TabsModule;
 import com.kotcrab.vis.editor.module.ToolbarModule;
 import com.kotcrab.vis.editor.module.project.AssetsManagerUIModule;
 import com.kotcrab.vis.editor.module.project.AssetsWatcherModule;
+import com.kotcrab.vis.editor.module.project.ClipboardModule;
 import com.kotcrab.vis.editor.module.project.ExportModule;
 import com.kotcrab.vis.editor.module.project.FileAccessModule;
 import com.kotcrab.vis.editor.module.project.Project;
@@ -166,7 +167,7 @@ public class Editor extends ApplicationAdapter implements EventListener {
 		editorMC.add(new TabsModule());
 		editorMC.add(new StatusBarModule());
 		editorMC.add(new EditorSettingsIOModule());
-		editorMC.add(new ColorPickerModule());
+		editorMC.addLazy(ColorPickerModule.class);
 
 		editorMC.add(settings = new GeneralSettingsModule());
 		editorMC.add(new GridSettingsModule());
@@ -267,9 +268,10 @@ public class Editor extends ApplicationAdapter implements EventListener {
 		projectMC.add(new FileAccessModule());
 		projectMC.add(new AssetsWatcherModule());
 		projectMC.add(new TextureCacheModule());
-		projectMC.add(new ExportModule());
+		projectMC.addLazy(ExportModule.class);
 		projectMC.add(new SceneIOModule());
 		projectMC.add(new SceneMetadataModule());
+		projectMC.add(new ClipboardModule());
 
 		projectMC.add(new SceneTabsModule());
 		projectMC.add(new ProjectInfoTabModule());
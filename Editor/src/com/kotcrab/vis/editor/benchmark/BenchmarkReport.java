@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.benchmark;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonWriter.OutputType;
+import com.kotcrab.vis.editor.App;
+
+/** Results of {@link SceneBenchmark}, written as json so they can be compared between runs */
+public class BenchmarkReport {
+	public String version = App.VERSION;
+	public long timestamp = System.currentTimeMillis();
+	public String javaVersion = System.getProperty("java.version");
+	public int iterations;
+	public long seed;
+	public Array<ScenarioResult> scenarios = new Array<>();
+
+	public void write (FileHandle file) {
+		Json json = new Json(OutputType.json);
+		json.setTypeName(null);
+		json.setUsePrototypes(false);
+		file.writeString(json.prettyPrint(this), false, "UTF-8");
+	}
+
+	public static class ScenarioResult {
+		public int objects;
+		public String distribution;
+		/** Approximate heap memory used by scene, divided by object count */
+		public long bytesPerObject;
+		public Array<OperationResult> operations = new Array<>();
+
+		public ScenarioResult () {
+		}
+
+		public ScenarioResult (int objects, String distribution) {
+			this.objects = objects;
+			this.distribution = distribution;
+		}
+	}
+
+	public static class OperationResult {
+		public String name;
+		/** Number of operations performed in single iteration, for example number of picked points */
+		public int operationsPerIteration;
+		public double minMs;
+		public double meanMs;
+		public double maxMs;
+
+		public OperationResult () {
+		}
+
+		public OperationResult (String name, int operationsPerIteration, long[] times) {
+			this.name = name;
+			this.operationsPerIteration = operationsPerIteration;
+
+			long min = Long.MAX_VALUE, max = 0, sum = 0;
+			for (long time : times) {
+				min = Math.min(min, time);
+				max = Math.max(max, time);
+				sum += time;
+			}
+
+			minMs = min / 1e6;
+			maxMs = max / 1e6;
+			meanMs = sum / 1e6 / times.length;
+		}
+	}
+}
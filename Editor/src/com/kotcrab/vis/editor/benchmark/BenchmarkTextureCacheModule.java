@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.benchmark;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.kotcrab.vis.editor.module.project.TextureCacheModule;
+
+/** Texture cache that doesn't pack project assets, all regions are parts of single empty texture */
+public class BenchmarkTextureCacheModule extends TextureCacheModule {
+	public static final int REGIONS = 16;
+
+	private Texture texture;
+	private ObjectMap<String, TextureRegion> regions = new ObjectMap<>();
+
+	@Override
+	public Class<?>[] getDependencies () {
+		return new Class<?>[0];
+	}
+
+	@Override
+	public void init () {
+		texture = HeadlessEnvironment.createTexture(1024, 1024);
+
+		for (int i = 0; i < REGIONS; i++) {
+			int size = 16 << (i % 5);
+			regions.put(getRegionPath(i), new TextureRegion(texture, (i % 4) * 256, (i / 4) * 256, size, size));
+		}
+	}
+
+	@Override
+	public void dispose () {
+		texture.dispose();
+	}
+
+	public String getRegionPath (int index) {
+		return "gfx/region" + index;
+	}
+
+	@Override
+	public TextureRegion getRegion (String relativePath) {
+		return regions.get(relativePath);
+	}
+}
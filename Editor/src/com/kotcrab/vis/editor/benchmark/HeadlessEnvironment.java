@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.benchmark;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl.LwjglFiles;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/** Allows to use textures and sprites without GL context, all GL calls are ignored */
+public class HeadlessEnvironment {
+	private static int lastHandle;
+
+	public static void init () {
+		GL20 gl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[]{GL20.class}, new InvocationHandler() {
+			@Override
+			public Object invoke (Object proxy, Method method, Object[] args) {
+				Class<?> type = method.getReturnType();
+
+				if (type == int.class) return method.getName().startsWith("glGen") || method.getName().startsWith("glCreate") ? ++lastHandle : 0;
+				if (type == boolean.class) return false;
+				if (type == float.class) return 0f;
+				if (type == String.class) return "";
+				return null;
+			}
+		});
+
+		Gdx.gl = gl;
+		Gdx.gl20 = gl;
+		if (Gdx.files == null) Gdx.files = new LwjglFiles();
+	}
+
+	/** Creates texture that has given size but no data */
+	public static Texture createTexture (int width, int height) {
+		return new Texture(new EmptyTextureData(width, height));
+	}
+
+	private static class EmptyTextureData implements TextureData {
+		private int width;
+		private int height;
+
+		public EmptyTextureData (int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public TextureDataType getType () {
+			return TextureDataType.Custom;
+		}
+
+		@Override
+		public boolean isPrepared () {
+			return true;
+		}
+
+		@Override
+		public void prepare () {
+		}
+
+		@Override
+		public Pixmap consumePixmap () {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean disposePixmap () {
+			return false;
+		}
+
+		@Override
+		public void consumeCustomData (int target) {
+		}
+
+		@Override
+		public int getWidth () {
+			return width;
+		}
+
+		@Override
+		public int getHeight () {
+			return height;
+		}
+
+		@Override
+		public Format getFormat () {
+			return Format.RGBA8888;
+		}
+
+		@Override
+		public boolean useMipMaps () {
+			return false;
+		}
+
+		@Override
+		public boolean isManaged () {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.benchmark;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.kotcrab.vis.editor.benchmark.BenchmarkReport.OperationResult;
+import com.kotcrab.vis.editor.benchmark.BenchmarkReport.ScenarioResult;
+import com.kotcrab.vis.editor.module.EditorModuleContainer;
+import com.kotcrab.vis.editor.module.project.ExportModule;
+import com.kotcrab.vis.editor.module.project.FileAccessModule;
+import com.kotcrab.vis.editor.module.project.Project;
+import com.kotcrab.vis.editor.module.project.ProjectModuleContainer;
+import com.kotcrab.vis.editor.module.project.SceneIOModule;
+import com.kotcrab.vis.editor.module.project.TextureCacheModule;
+import com.kotcrab.vis.editor.module.scene.EditorScene;
+import com.kotcrab.vis.editor.module.scene.EditorSceneObject;
+import com.kotcrab.vis.editor.module.scene.Object2d;
+import com.kotcrab.vis.editor.module.scene.TransformAction;
+import com.kotcrab.vis.editor.module.scene.UndoableActionGroup;
+import com.kotcrab.vis.editor.module.scene.ZIndexManipulator;
+import com.kotcrab.vis.runtime.scene.SceneViewport;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Measures editor operations on generated scenes with large number of objects, doesn't require GL context. Usage:
+ * <pre>
+ * SceneBenchmark [--objects=10000,50000,200000] [--distribution=uniform,clustered,grid,stacked] [--iterations=5]
+ *                [--seed=0] [--out=benchmark-report.json]
+ * </pre>
+ */
+public class SceneBenchmark {
+	private static final int PICKS = 1000;
+	private static final int Z_MOVES = 50;
+	private static final int TRANSFORM_OBJECTS = 5000;
+
+	private final int iterations;
+	private final long seed;
+	private Random random;
+
+	private File projectRoot;
+	private ProjectModuleContainer projectMC;
+	private BenchmarkTextureCacheModule textureCache;
+	private SceneIOModule sceneIO;
+	private ExportModule export;
+
+	public enum Distribution {
+		/** Objects are spread evenly over whole scene */
+		UNIFORM,
+		/** Objects are grouped in few dense clusters */
+		CLUSTERED,
+		/** Objects are placed in regular tiles */
+		GRID,
+		/** All objects are overlapping in small area */
+		STACKED
+	}
+
+	public SceneBenchmark (int iterations, long seed) {
+		this.iterations = iterations;
+		this.seed = seed;
+	}
+
+	public static void main (String[] args) throws IOException {
+		int[] objectCounts = {10000, 50000, 200000};
+		Distribution[] distributions = Distribution.values();
+		int iterations = 5;
+		long seed = 0;
+		String out = "benchmark-report.json";
+
+		for (String arg : args) {
+			String value = arg.substring(arg.indexOf('=') + 1);
+
+			if (arg.startsWith("--objects=")) {
+				String[] counts = value.split(",");
+				objectCounts = new int[counts.length];
+				for (int i = 0; i < counts.length; i++)
+					objectCounts[i] = Integer.parseInt(counts[i].trim());
+			} else if (arg.startsWith("--distribution=")) {
+				String[] names = value.split(",");
+				distributions = new Distribution[names.length];
+				for (int i = 0; i < names.length; i++)
+					distributions[i] = Distribution.valueOf(names[i].trim().toUpperCase());
+			} else if (arg.startsWith("--iterations="))
+				iterations = Integer.parseInt(value);
+			else if (arg.startsWith("--seed="))
+				seed = Long.parseLong(value);
+			else if (arg.startsWith("--out="))
+				out = value;
+			else
+				throw new IllegalArgumentException("Unknown argument: " + arg);
+		}
+
+		BenchmarkReport report = new SceneBenchmark(iterations, seed).run(objectCounts, distributions);
+		report.write(new FileHandle(out));
+		System.out.println("Report written to: " + new File(out).getAbsolutePath());
+	}
+
+	public BenchmarkReport run (int[] objectCounts, Distribution[] distributions) throws IOException {
+		HeadlessEnvironment.init();
+		createProject();
+
+		BenchmarkReport report = new BenchmarkReport();
+		report.iterations = iterations;
+		report.seed = seed;
+
+		try {
+			for (int objects : objectCounts) {
+				for (Distribution distribution : distributions) {
+					System.out.println("Running scenario: " + objects + " objects, " + distribution);
+					report.scenarios.add(runScenario(objects, distribution));
+				}
+			}
+		} finally {
+			projectMC.dispose();
+			new FileHandle(projectRoot).deleteDirectory();
+		}
+
+		return report;
+	}
+
+	private void createProject () throws IOException {
+		projectRoot = Files.createTempDirectory("vis-benchmark").toFile();
+		new File(projectRoot, "vis/assets/scene").mkdirs();
+		new File(projectRoot, "vis/modules").mkdirs();
+
+		Project project = new Project(Project.Type.LibGDX);
+		project.root = projectRoot.getAbsolutePath();
+		project.assets = new File(projectRoot, "export").getAbsolutePath();
+
+		projectMC = new ProjectModuleContainer(new EditorModuleContainer());
+		projectMC.setProject(project);
+		projectMC.add(new FileAccessModule());
+		projectMC.add(textureCache = new BenchmarkTextureCacheModule(), TextureCacheModule.class);
+		projectMC.add(sceneIO = new SceneIOModule());
+		projectMC.add(export = new ExportModule());
+		projectMC.init();
+	}
+
+	private ScenarioResult runScenario (int objects, Distribution distribution) {
+		random = new Random(seed);
+		ScenarioResult result = new ScenarioResult(objects, distribution.name().toLowerCase());
+
+		//journals of scenes saved and loaded by previous scenario may be still created on save thread
+		sceneIO.waitForPendingSaves();
+		long heapBefore = getUsedHeap();
+		final EditorScene scene = createScene(objects, distribution);
+		result.bytesPerObject = (getUsedHeap() - heapBefore) / objects;
+
+		final Array<Object2d> sceneObjects = new Array<>(objects);
+		for (EditorSceneObject object : scene.getObjects())
+			sceneObjects.add((Object2d) object);
+
+		result.operations.add(measure("saveFull", 1, new Operation() {
+			@Override
+			public void run () {
+				//scene properties are not journaled, changed width forces whole scene file to be rewritten
+				scene.width += scene.width % 2 == 0 ? 1 : -1;
+				sceneIO.save(scene);
+			}
+		}));
+
+		result.operations.add(measure("saveSingleChange", 1, new Operation() {
+			@Override
+			public void run () {
+				Object2d object = sceneObjects.get(random.nextInt(sceneObjects.size));
+				object.translate(1, 1);
+				scene.updateObjectBounds(object);
+				sceneIO.save(scene);
+			}
+		}));
+
+		result.operations.add(measure("load", 1, new Operation() {
+			@Override
+			public void run () {
+				sceneIO.load(sceneIO.getFileHandleForScene(scene));
+			}
+		}));
+
+		final FileHandle exportFile = new FileHandle(new File(projectRoot, "export.json"));
+		result.operations.add(measure("export", 1, new Operation() {
+			@Override
+			public void run () {
+				export.getJson().toJson(export.exportScene(scene), exportFile);
+			}
+		}));
+
+		final float[] pickPoints = new float[PICKS * 2];
+		for (int i = 0; i < pickPoints.length; i += 2) {
+			Object2d target = sceneObjects.get(random.nextInt(objects));
+			pickPoints[i] = target.getX() + random.nextFloat() * target.getWidth();
+			pickPoints[i + 1] = target.getY() + random.nextFloat() * target.getHeight();
+		}
+
+		result.operations.add(measure("pick", PICKS, new Operation() {
+			@Override
+			public void run () {
+				for (int i = 0; i < pickPoints.length; i += 2)
+					scene.findObjectWithSmallestSurfaceArea(pickPoints[i], pickPoints[i + 1]);
+			}
+		}));
+
+		final ZIndexManipulator zIndexManipulator = new ZIndexManipulator();
+		zIndexManipulator.setSceneObjects(null, null, scene);
+		final Array<UndoableActionGroup> zIndexActions = new Array<>();
+		final Array<Object2d> moved = new Array<>(1);
+
+		result.operations.add(measure("zIndexMove", Z_MOVES, new Operation() {
+			@Override
+			public void run () {
+				zIndexActions.clear();
+
+				for (int i = 0; i < Z_MOVES; i++) {
+					moved.clear();
+					moved.add(sceneObjects.get(random.nextInt(sceneObjects.size)));
+					zIndexActions.add(zIndexManipulator.moveObjects(moved, i % 2 == 0));
+				}
+			}
+		}));
+
+		result.operations.add(measure("zIndexUndoRedo", Z_MOVES * 2, new Operation() {
+			@Override
+			public void run () {
+				for (int i = zIndexActions.size - 1; i >= 0; i--)
+					zIndexActions.get(i).undo();
+
+				for (int i = 0; i < zIndexActions.size; i++)
+					zIndexActions.get(i).execute();
+			}
+		}));
+
+		final Array<Object2d> transformed = new Array<>(sceneObjects);
+		transformed.shuffle();
+		transformed.truncate(Math.min(TRANSFORM_OBJECTS, objects));
+		final TransformAction[] transformAction = new TransformAction[1];
+
+		result.operations.add(measure("transformRecord", transformed.size, new Operation() {
+			@Override
+			public void run () {
+				TransformAction action = new TransformAction(scene, transformed, false);
+
+				for (Object2d object : transformed) {
+					object.translate(1, 1);
+					scene.updateObjectBounds(object);
+				}
+
+				action.finish();
+				transformAction[0] = action;
+			}
+		}));
+
+		result.operations.add(measure("transformUndoRedo", 2, new Operation() {
+			@Override
+			public void run () {
+				transformAction[0].undo();
+				transformAction[0].execute();
+			}
+		}));
+
+		return result;
+	}
+
+	private EditorScene createScene (int objects, Distribution distribution) {
+		int size = (int) Math.sqrt(objects) * 128;
+		EditorScene scene = new EditorScene(new FileHandle("assets/scene/benchmark.scene"), SceneViewport.values()[0], size, size);
+
+		int columns = (int) Math.ceil(Math.sqrt(objects));
+		float cellSize = (float) size / columns;
+
+		float[] clusters = new float[32];
+		for (int i = 0; i < clusters.length; i++)
+			clusters[i] = random.nextFloat() * size;
+
+		for (int i = 0; i < objects; i++) {
+			float x, y;
+
+			switch (distribution) {
+				case CLUSTERED:
+					int cluster = random.nextInt(clusters.length / 2) * 2;
+					x = clusters[cluster] + (float) random.nextGaussian() * size / 32;
+					y = clusters[cluster + 1] + (float) random.nextGaussian() * size / 32;
+					break;
+				case GRID:
+					x = (i % columns) * cellSize;
+					y = (i / columns) * cellSize;
+					break;
+				case STACKED:
+					x = random.nextFloat() * 512;
+					y = random.nextFloat() * 512;
+					break;
+				default:
+					x = random.nextFloat() * size;
+					y = random.nextFloat() * size;
+					break;
+			}
+
+			String regionPath = textureCache.getRegionPath(random.nextInt(BenchmarkTextureCacheModule.REGIONS));
+			Object2d object = new Object2d(regionPath, textureCache.getRegion(regionPath), x, y);
+			object.id = "object" + i;
+			scene.addObject(object);
+		}
+
+		return scene;
+	}
+
+	private OperationResult measure (String name, int operationsPerIteration, Operation operation) {
+		operation.run(); //warmup
+
+		long[] times = new long[iterations];
+
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			operation.run();
+			times[i] = System.nanoTime() - start;
+		}
+
+		return new OperationResult(name, operationsPerIteration, times);
+	}
+
+	/** @return used heap after garbage collection was repeated until used heap stopped shrinking */
+	private long getUsedHeap () {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+
+		for (int i = 0; i < 20; i++) {
+			System.gc();
+			System.runFinalization();
+
+			long current = runtime.totalMemory() - runtime.freeMemory();
+			if (current >= used) return current;
+			used = current;
+
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		return used;
+	}
+
+	private interface Operation {
+		void run ();
+	}
+}
@@ -22,12 +22,22 @@ package com.kotcrab.vis.editor.module;
 import com.badlogic.gdx.utils.Disposable;
 
 public abstract class BaseModule implements Disposable {
+	private static final Class<?>[] NO_DEPENDENCIES = new Class<?>[0];
+
 	public void added () {
 	}
 
 	public void init () {
 	}
 
+	/**
+	 * Returns classes of modules that must be initialized before this module. Only modules from the same container are taken
+	 * into account, modules from parent containers are always initialized earlier.
+	 */
+	public Class<?>[] getDependencies () {
+		return NO_DEPENDENCIES;
+	}
+
 	public void resize () {
 	}
 
@@ -20,36 +20,117 @@
 package com.kotcrab.vis.editor.module;
 
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.ObjectSet;
 
 public class BaseModuleContainer<T extends BaseModule> {
 	protected Array<T> modules = new Array<>();
 	private boolean initFinished = false;
+	private boolean initializing = false;
+
+	private IdentityMap<Class<?>, T> modulesMap = new IdentityMap<>();
+	private IdentityMap<Class<?>, Class<? extends T>> lazyModules = new IdentityMap<>();
+
+	private ObjectSet<T> initializedModules = new ObjectSet<>();
+	private Array<T> initStack = new Array<>();
 
 	public void add (T module) {
 		modules.add(module);
+		T registered = modulesMap.get(module.getClass());
+		if (registered == null || registered.getClass() != module.getClass()) modulesMap.put(module.getClass(), module);
+		lazyModules.remove(module.getClass());
+
 		module.added();
-		if (initFinished) module.init();
+		if (initFinished || initializing) initModule(module);
 	}
 
+	/**
+	 * Adds module that will be also returned when module of given class is requested. Allows to replace module with its subclass,
+	 * for example when module is stubbed out by tools running without GL context.
+	 */
+	public void add (T module, Class<? extends T> moduleClass) {
+		if (moduleClass.isInstance(module) == false)
+			throw new IllegalArgumentException("Module: '" + module.getClass() + "' is not instance of: '" + moduleClass + "'");
+
+		modulesMap.put(moduleClass, module);
+		lazyModules.remove(moduleClass);
+		add(module);
+	}
+
+	/**
+	 * Registers module that will be created when some other module requests it using {@link #get(Class)} or declares it as its
+	 * dependency. Module class must have public no-arg constructor.
+	 */
+	public void addLazy (Class<? extends T> moduleClass) {
+		if (modulesMap.containsKey(moduleClass)) return;
+		lazyModules.put(moduleClass, moduleClass);
+	}
+
+	/** Initializes all modules, module dependencies are always initialized before module that depends on them */
 	public void init () {
 		if (initFinished) throw new IllegalStateException("ModuleContainer cannot be initialized twice!");
 
+		initializing = true;
+
 		for (int i = 0; i < modules.size; i++)
-			modules.get(i).init();
+			initModule(modules.get(i));
 
+		initializing = false;
 		initFinished = true;
 	}
 
+	private void initModule (T module) {
+		if (initializedModules.contains(module)) return;
+
+		if (initStack.contains(module, true)) {
+			StringBuilder builder = new StringBuilder();
+			for (int i = initStack.indexOf(module, true); i < initStack.size; i++)
+				builder.append(initStack.get(i).getClass().getSimpleName()).append(" -> ");
+			builder.append(module.getClass().getSimpleName());
+
+			initStack.clear();
+			throw new IllegalStateException("Circular module dependency: " + builder);
+		}
+
+		initStack.add(module);
+
+		for (Class<?> dependencyClass : module.getDependencies()) {
+			T dependency = findModule(dependencyClass);
+			//modules from parent containers were already initialized
+			if (dependency != null) initModule(dependency);
+		}
+
+		initStack.pop();
+
+		module.init();
+		initializedModules.add(module);
+	}
+
 	@SuppressWarnings("unchecked")
 	public <C> C get (Class<C> moduleClass) {
-		for (int i = 0; i < modules.size; i++) {
-			BaseModule m = modules.get(i);
-			if (m.getClass() == moduleClass) return (C) m;
-		}
+		T module = findModule(moduleClass);
+		if (module != null) return (C) module;
 
 		throw new IllegalStateException("Failed to get module: '" + moduleClass + "' from ModuleContainer, module not found!");
 	}
 
+	private T findModule (Class<?> moduleClass) {
+		T module = modulesMap.get(moduleClass);
+		if (module != null) return module;
+
+		Class<? extends T> lazyClass = lazyModules.get(moduleClass);
+		if (lazyClass == null) return null;
+
+		try {
+			module = lazyClass.getConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to create module: '" + moduleClass + "'", e);
+		}
+
+		add(module);
+		return module;
+	}
+
 	public Array<T> getModules () {
 		return modules;
 	}
@@ -59,6 +140,9 @@ public class BaseModuleContainer<T extends BaseModule> {
 			modules.get(i).dispose();
 
 		modules.clear();
+		modulesMap.clear();
+		lazyModules.clear();
+		initializedModules.clear();
 		initFinished = false;
 	}
 
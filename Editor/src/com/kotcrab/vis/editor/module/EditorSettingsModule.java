@@ -44,6 +44,11 @@ public abstract class EditorSettingsModule<T> extends EditorModule implements Se
 		return name;
 	}
 
+	@Override
+	public Class<?>[] getDependencies () {
+		return new Class<?>[]{EditorSettingsIOModule.class};
+	}
+
 	@Override
 	public void init () {
 		settingsIO = container.get(EditorSettingsIOModule.class);
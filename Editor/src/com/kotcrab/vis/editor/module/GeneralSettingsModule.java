@@ -20,10 +20,19 @@
 package com.kotcrab.vis.editor.module;
 
 import com.kotcrab.vis.editor.module.GeneralSettingsModule.GeneralConfig;
+import com.kotcrab.vis.editor.util.FieldUtils;
+import com.kotcrab.vis.ui.VisTable;
+import com.kotcrab.vis.ui.util.Validators;
 import com.kotcrab.vis.ui.widget.VisCheckBox;
+import com.kotcrab.vis.ui.widget.VisLabel;
+import com.kotcrab.vis.ui.widget.VisTextField.TextFieldFilter.DigitsOnlyFilter;
+import com.kotcrab.vis.ui.widget.VisValidableTextField;
 
 public class GeneralSettingsModule extends EditorSettingsModule<GeneralConfig> {
 	private VisCheckBox confirmExitCheck;
+	private VisCheckBox pixelAccurateSelectionCheck;
+	private VisValidableTextField hibernationDelayField;
+	private VisValidableTextField selectionOutlineLimitField;
 
 	public GeneralSettingsModule () {
 		super("General", "generalSettings", GeneralConfig.class);
@@ -31,23 +40,50 @@ public class GeneralSettingsModule extends EditorSettingsModule<GeneralConfig> {
 
 	@Override
 	public boolean settingsChanged () {
-		return true;
+		return hibernationDelayField.isInputValid() && selectionOutlineLimitField.isInputValid();
 	}
 
 	@Override
 	public void buildTable () {
 		prepareTable();
 		settingsTable.add(confirmExitCheck = new VisCheckBox("Confirm exit", config.confirmExit)).left();
+		settingsTable.row();
+		settingsTable.add(pixelAccurateSelectionCheck = new VisCheckBox("Ignore transparent pixels when selecting objects", config.pixelAccurateSelection)).left();
+		settingsTable.row();
+
+		VisTable hibernationTable = new VisTable(true);
+		hibernationTable.add(new VisLabel("Hibernate hidden scenes after: "));
+		hibernationTable.add(hibernationDelayField = new VisValidableTextField(Validators.integers)).width(50);
+		hibernationTable.add(new VisLabel("minutes (0 disables)"));
+		settingsTable.add(hibernationTable).left();
+		settingsTable.row();
+
+		VisTable outlineTable = new VisTable(true);
+		outlineTable.add(new VisLabel("Draw single outline around selections larger than: "));
+		outlineTable.add(selectionOutlineLimitField = new VisValidableTextField(Validators.integers)).width(50);
+		outlineTable.add(new VisLabel("objects"));
+		settingsTable.add(outlineTable).left();
+
+		hibernationDelayField.setTextFieldFilter(new DigitsOnlyFilter());
+		hibernationDelayField.setText(String.valueOf(config.sceneHibernationDelay));
+		selectionOutlineLimitField.setTextFieldFilter(new DigitsOnlyFilter());
+		selectionOutlineLimitField.setText(String.valueOf(config.selectionOutlineLimit));
 	}
 
 	@Override
 	public void loadConfigToTable () {
 		confirmExitCheck.setChecked(config.confirmExit);
+		pixelAccurateSelectionCheck.setChecked(config.pixelAccurateSelection);
+		hibernationDelayField.setText(String.valueOf(config.sceneHibernationDelay));
+		selectionOutlineLimitField.setText(String.valueOf(config.selectionOutlineLimit));
 	}
 
 	@Override
 	public void settingsApply () {
 		config.confirmExit = confirmExitCheck.isChecked();
+		config.pixelAccurateSelection = pixelAccurateSelectionCheck.isChecked();
+		config.sceneHibernationDelay = FieldUtils.getInt(hibernationDelayField, 0);
+		config.selectionOutlineLimit = FieldUtils.getInt(selectionOutlineLimitField, 0);
 		settingsSave();
 	}
 
@@ -55,7 +91,25 @@ public class GeneralSettingsModule extends EditorSettingsModule<GeneralConfig> {
 		return config.confirmExit;
 	}
 
+	public boolean isPixelAccurateSelection () {
+		return config.pixelAccurateSelection;
+	}
+
+	/** @return time in seconds after which hidden scene tab releases its resources, 0 if hibernation is disabled */
+	public float getSceneHibernationDelay () {
+		return config.sceneHibernationDelay * 60;
+	}
+
+	/** @return max number of selected objects that have their own outline, larger selections have one outline around them */
+	public int getSelectionOutlineLimit () {
+		return config.selectionOutlineLimit;
+	}
+
 	public static class GeneralConfig {
 		private boolean confirmExit = true;
+		private boolean pixelAccurateSelection = true;
+		/** In minutes */
+		private int sceneHibernationDelay = 5;
+		private int selectionOutlineLimit = 5000;
 	}
 }
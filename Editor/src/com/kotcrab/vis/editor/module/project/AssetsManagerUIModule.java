@@ -42,6 +42,7 @@ import com.kotcrab.vis.editor.Assets;
 import com.kotcrab.vis.editor.Editor;
 import com.kotcrab.vis.editor.module.TabsModule;
 import com.kotcrab.vis.editor.module.scene.EditorScene;
+import com.kotcrab.vis.editor.module.scene.SceneJournal;
 import com.kotcrab.vis.editor.ui.tab.DragAndDropTarget;
 import com.kotcrab.vis.editor.ui.tab.Tab;
 import com.kotcrab.vis.editor.ui.tab.TabbedPaneListener;
@@ -233,6 +234,8 @@ public class AssetsManagerUIModule extends ProjectModule implements DirectoryWat
 		FileHandle[] files = directory.list(new FileFilter() {
 			@Override
 			public boolean accept (File file) {
+				//journal is part of scene file, it shouldn't be displayed separately
+				if (file.getName().endsWith("." + SceneJournal.EXTENSION)) return false;
 				if (searchTextField.getText().equals("")) return true;
 
 				return file.getName().contains(searchTextField.getText());
@@ -338,7 +341,7 @@ public class AssetsManagerUIModule extends ProjectModule implements DirectoryWat
 
 	private void openFile (FileHandle file) {
 		if (file.extension().equals("scene")) {
-			EditorScene scene = sceneIO.load(file);
+			EditorScene scene = sceneIO.loadForEditing(file);
 			sceneTabsModule.open(scene);
 			return;
 		}
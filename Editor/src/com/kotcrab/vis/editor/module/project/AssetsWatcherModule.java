@@ -26,6 +26,11 @@ import com.badlogic.gdx.files.FileHandle;
 public class AssetsWatcherModule extends ProjectModule {
 	private DirectoryWatcher watcher;
 
+	@Override
+	public Class<?>[] getDependencies () {
+		return new Class<?>[]{FileAccessModule.class};
+	}
+
 	@Override
 	public void init () {
 		FileAccessModule fileAccess = projectContainer.get(FileAccessModule.class);
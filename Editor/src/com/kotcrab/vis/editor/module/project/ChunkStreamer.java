@@ -0,0 +1,222 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.project;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.esotericsoftware.kryo.KryoException;
+import com.kotcrab.vis.editor.App;
+import com.kotcrab.vis.editor.event.StatusBarEvent;
+import com.kotcrab.vis.editor.module.scene.EditorScene;
+import com.kotcrab.vis.editor.module.scene.EditorScene.PendingLoader;
+import com.kotcrab.vis.editor.module.scene.Object2d;
+import com.kotcrab.vis.editor.module.scene.SceneChunks;
+import com.kotcrab.vis.editor.module.scene.SceneChunks.Chunk;
+import com.kotcrab.vis.editor.module.scene.SceneJournal;
+import com.kotcrab.vis.editor.util.Log;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Loads objects of chunked scene file. Chunks visible in initial view area are loaded immediately, other chunks are read on
+ * loader threads, nearest first, and their objects are added to scene on GL thread in small batches, so scene tab can be used
+ * before whole scene is loaded.
+ */
+class ChunkStreamer implements PendingLoader, Runnable {
+	/** Maximum time in nanoseconds spent adding loaded objects to scene during single frame */
+	private static final long FRAME_BUDGET = 4 * 1000 * 1000;
+
+	private SceneIOModule sceneIO;
+	private SceneChunks chunks;
+	private EditorScene scene;
+	private File sceneFile;
+
+	private Array<Future<LoadedChunk>> pendingChunks = new Array<>();
+	private int nextChunk;
+
+	/** Objects already added to scene by z-index that they had in scene file, used to find where next objects should be inserted */
+	private TreeMap<Integer, Object2d> loadedObjects = new TreeMap<>();
+
+	private boolean failed;
+	private boolean done;
+
+	public ChunkStreamer (SceneIOModule sceneIO, SceneChunks chunks, File sceneFile) {
+		this.sceneIO = sceneIO;
+		this.chunks = chunks;
+		this.scene = chunks.getScene();
+		this.sceneFile = sceneFile;
+	}
+
+	/** Must be called on GL thread, loads chunks overlapping initial area and starts loading rest of them using executor */
+	public void start (Rectangle initialArea, ExecutorService executor) {
+		scene.rebuildIndexes();
+
+		Array<Chunk> laterChunks = new Array<>();
+
+		for (Chunk chunk : chunks.getChunks()) {
+			if (chunk.bounds.overlaps(initialArea))
+				add(readChunk(chunk));
+			else
+				laterChunks.add(chunk);
+		}
+
+		final float centerX = initialArea.x + initialArea.width / 2;
+		final float centerY = initialArea.y + initialArea.height / 2;
+
+		laterChunks.sort(new Comparator<Chunk>() {
+			@Override
+			public int compare (Chunk c1, Chunk c2) {
+				return Float.compare(distance(c1, centerX, centerY), distance(c2, centerX, centerY));
+			}
+		});
+
+		for (final Chunk chunk : laterChunks) {
+			pendingChunks.add(executor.submit(new Callable<LoadedChunk>() {
+				@Override
+				public LoadedChunk call () {
+					return readChunk(chunk);
+				}
+			}));
+		}
+
+		if (pendingChunks.size == 0)
+			complete();
+		else {
+			scene.setPendingLoader(this);
+			Gdx.app.postRunnable(this);
+		}
+	}
+
+	private static float distance (Chunk chunk, float x, float y) {
+		Rectangle bounds = chunk.bounds;
+		float dx = bounds.x + bounds.width / 2 - x;
+		float dy = bounds.y + bounds.height / 2 - y;
+		return dx * dx + dy * dy;
+	}
+
+	/** Adds chunks that were already read to scene, called every frame until all chunks are loaded */
+	@Override
+	public void run () {
+		if (done) return;
+
+		long start = TimeUtils.nanoTime();
+
+		while (nextChunk < pendingChunks.size && pendingChunks.get(nextChunk).isDone()) {
+			add(get(pendingChunks.get(nextChunk++)));
+			if (TimeUtils.nanoTime() - start > FRAME_BUDGET) break;
+		}
+
+		if (nextChunk == pendingChunks.size)
+			complete();
+		else
+			Gdx.app.postRunnable(this);
+	}
+
+	@Override
+	public void finish () {
+		if (done) return;
+
+		while (nextChunk < pendingChunks.size)
+			add(get(pendingChunks.get(nextChunk++)));
+
+		complete();
+	}
+
+	@Override
+	public void cancel () {
+		done = true;
+
+		for (Future<LoadedChunk> future : pendingChunks)
+			future.cancel(false);
+	}
+
+	private LoadedChunk readChunk (Chunk chunk) {
+		LoadedChunk loadedChunk = new LoadedChunk(chunk.getObjectCount());
+
+		try {
+			chunks.readChunk(chunk, loadedChunk.objects, loadedChunk.zIndexes);
+			return loadedChunk;
+		} catch (KryoException e) {
+			Log.exception(e);
+			return null;
+		}
+	}
+
+	private LoadedChunk get (Future<LoadedChunk> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException | ExecutionException e) {
+			Log.exception(e);
+			return null;
+		}
+	}
+
+	private void add (LoadedChunk chunk) {
+		if (chunk == null) {
+			failed = true;
+			return;
+		}
+
+		for (int i = 0; i < chunk.objects.size; i++) {
+			Object2d object = chunk.objects.get(i);
+			int zIndex = chunk.zIndexes.get(i);
+
+			sceneIO.prepareObjectAfterLoad(object);
+
+			//scene order can't change while loading, so object is placed right after loaded object with nearest lower z-index
+			Entry<Integer, Object2d> previous = loadedObjects.lowerEntry(zIndex);
+			scene.insertObject(previous == null ? 0 : scene.indexOf(previous.getValue()) + 1, object);
+			loadedObjects.put(zIndex, object);
+		}
+	}
+
+	private void complete () {
+		done = true;
+		loadedObjects = null;
+		scene.setPendingLoader(null);
+
+		if (failed) {
+			App.eventBus.post(new StatusBarEvent("Scene file is damaged, some objects couldn't be loaded"));
+			//z-indexes of journal operations refer to complete scene, journal is marked as broken so next save rewrites scene file
+			sceneIO.registerJournal(scene, sceneFile, -1);
+		} else
+			sceneIO.registerJournal(scene, sceneFile, SceneJournal.replay(sceneIO, scene, sceneFile));
+	}
+
+	private static class LoadedChunk {
+		final Array<Object2d> objects;
+		final IntArray zIndexes;
+
+		public LoadedChunk (int size) {
+			objects = new Array<>(size);
+			zIndexes = new IntArray(size);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.project;
+
+/**
+ * Holds copied scene objects, shared by all scene tabs of project. Objects are stored in serialized form so clipboard
+ * content doesn't change when copied objects are modified.
+ */
+public class ClipboardModule extends ProjectModule {
+	private byte[] content;
+
+	public void setContent (byte[] content) {
+		this.content = content;
+	}
+
+	/** @return serialized objects or null if clipboard is empty */
+	public byte[] getContent () {
+		return content;
+	}
+}
@@ -21,7 +21,6 @@ package com.kotcrab.vis.editor.module.project;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Json;
 import com.kotcrab.vis.editor.App;
@@ -30,6 +29,7 @@ import com.kotcrab.vis.editor.event.StatusBarEvent;
 import com.kotcrab.vis.editor.module.scene.EditorScene;
 import com.kotcrab.vis.editor.module.scene.EditorSceneObject;
 import com.kotcrab.vis.editor.module.scene.Object2d;
+import com.kotcrab.vis.editor.module.scene.SceneJournal;
 import com.kotcrab.vis.editor.ui.AsyncTaskProgressDialog;
 import com.kotcrab.vis.editor.util.AsyncTask;
 import com.kotcrab.vis.editor.util.Log;
@@ -44,6 +44,8 @@ import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ExportModule extends ProjectModule {
 	private SceneIOModule sceneIO;
@@ -55,6 +57,11 @@ public class ExportModule extends ProjectModule {
 
 	private Json json;
 
+	@Override
+	public Class<?>[] getDependencies () {
+		return new Class<?>[]{FileAccessModule.class};
+	}
+
 	@Override
 	public void init () {
 		fileAccess = projectContainer.get(FileAccessModule.class);
@@ -89,6 +96,37 @@ public class ExportModule extends ProjectModule {
 		firstExportDone = true;
 	}
 
+	/** Converts editor scene to runtime scene data */
+	public SceneData exportScene (EditorScene editorScene) {
+		SceneData sceneData = new SceneData();
+
+		sceneData.viewport = editorScene.viewport;
+		sceneData.width = editorScene.width;
+		sceneData.height = editorScene.height;
+		sceneData.entities = new Array<>(editorScene.getObjectCount());
+
+		for (EditorSceneObject object : editorScene.getObjects()) {
+			if (object instanceof Object2d) {
+				Object2d obj = (Object2d) object;
+				SceneSpriteData data = new SceneSpriteData();
+				obj.saveTo(data);
+
+				data.id = obj.id;
+				data.textureAtlas = "gfx/textures.atlas";
+				data.textureRegion = obj.regionRelativePath;
+
+				sceneData.entities.add(data);
+			}
+		}
+
+		return sceneData;
+	}
+
+	/** @return json used to write exported scenes */
+	public Json getJson () {
+		return json;
+	}
+
 	private void doExport () {
 		ExportAsyncTask exportTask = new ExportAsyncTask();
 		Editor.instance.getStage().addActor(new AsyncTaskProgressDialog("Exporting", exportTask).fadeIn());
@@ -108,15 +146,20 @@ public class ExportModule extends ProjectModule {
 		@Override
 		public void execute () {
 			setMessage("Preparing for export...");
+			sceneIO.waitForPendingSaves();
 			totalSteps = calculateSteps();
 
 			cleanOldAssets();
 			packageTextures();
 			copyAssets();
-			exportScenes(this, visAssetsDir.child("scene"), outAssetsDir.child("scene"));
+			Array<FileHandle> failedScenes = exportScenes(this, visAssetsDir.child("scene"), outAssetsDir.child("scene"));
 
 			nextStep();
-			App.eventBus.post(new StatusBarEvent("Export finished"));
+
+			if (failedScenes.size > 0)
+				failed("Export failed, some scenes couldn't be loaded: " + failedScenes.toString(", ") + ". Check log for details.");
+			else
+				App.eventBus.post(new StatusBarEvent("Export finished"));
 		}
 
 		private void nextStep () {
@@ -178,43 +221,43 @@ public class ExportModule extends ProjectModule {
 			}
 		}
 
-		private void exportScenes (ExportAsyncTask task, FileHandle sceneDir, FileHandle outDir) {
-			outDir.mkdirs();
-
-			for (FileHandle file : sceneDir.list()) {
-				if (file.isDirectory()) exportScenes(task, file, outDir.child(file.name()));
-
-				if (file.extension().equals("scene")) {
-					task.setMessage("Exporting scene: " + file.name());
-
-					EditorScene editorScene = sceneIO.load(file);
-					SceneData sceneData = new SceneData();
+		/** @return scene files that couldn't be loaded and weren't exported */
+		private Array<FileHandle> exportScenes (ExportAsyncTask task, FileHandle sceneDir, FileHandle outDir) {
+			List<FileHandle> sceneFiles = new ArrayList<>();
+			Array<FileHandle> outFiles = new Array<>();
+			collectScenes(sceneDir, outDir, sceneFiles, outFiles);
 
-					sceneData.viewport = editorScene.viewport;
-					sceneData.width = editorScene.width;
-					sceneData.height = editorScene.height;
-					sceneData.entities = new Array<>();
+			task.setMessage("Loading scenes...");
+			Array<EditorScene> scenes = sceneIO.loadAll(sceneFiles);
+			Array<FileHandle> failedScenes = new Array<>();
 
-					for (EditorSceneObject object : editorScene.objects) {
-						if (object instanceof Object2d) {
-							Object2d obj = (Object2d) object;
-							Sprite s = obj.sprite;
+			for (int i = 0; i < scenes.size; i++) {
+				FileHandle file = sceneFiles.get(i);
+				EditorScene editorScene = scenes.get(i);
+				task.setMessage("Exporting scene: " + file.name());
 
-							SceneSpriteData data = new SceneSpriteData();
-							data.saveFrom(s);
+				if (editorScene == null) {
+					Log.error("Scene couldn't be loaded and wasn't exported: " + file.path());
+					failedScenes.add(file);
+				} else
+					json.toJson(exportScene(editorScene), outFiles.get(i));
 
-							data.id = obj.id;
-							data.textureAtlas = "gfx/textures.atlas";
-							data.textureRegion = obj.regionRelativePath;
+				task.nextStep();
+			}
 
-							sceneData.entities.add(data);
-						}
-					}
+			return failedScenes;
+		}
 
-					json.toJson(sceneData, outDir.child(file.name()));
-					task.nextStep();
+		private void collectScenes (FileHandle sceneDir, FileHandle outDir, List<FileHandle> sceneFiles, Array<FileHandle> outFiles) {
+			outDir.mkdirs();
 
-				} else
+			for (FileHandle file : sceneDir.list()) {
+				if (file.isDirectory())
+					collectScenes(file, outDir.child(file.name()), sceneFiles, outFiles);
+				else if (file.extension().equals("scene")) {
+					sceneFiles.add(file);
+					outFiles.add(outDir.child(file.name()));
+				} else if (file.extension().equals(SceneJournal.EXTENSION) == false)
 					Log.warn("Unknown file in 'scene' directory: " + file.path());
 			}
 		}
@@ -0,0 +1,503 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.project;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Page;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Region;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.kotcrab.vis.editor.util.AlphaMask;
+import com.kotcrab.vis.editor.util.Log;
+import com.kotcrab.vis.editor.util.texturepacker.TexturePacker.Settings;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Updates texture cache atlas after some of its images changed, without repacking whole atlas. Changed image is drawn into
+ * its old place if it still fits there, otherwise it is placed in free space of existing pages or on new page. Only modified
+ * pages are rewritten and for existing pages only changed areas have to be uploaded to GPU.
+ * <p/>
+ * Images are named the same way as {@link com.kotcrab.vis.editor.util.texturepacker.TexturePacker} does it. Nine patches,
+ * rotated regions and images that can't be loaded are not supported, full repack must be used for them.
+ */
+class IncrementalAtlasUpdater {
+	private static final Pattern INDEX_PATTERN = Pattern.compile("(.+)_(\\d+)$");
+
+	/** Size of cell used when searching for free space in pages, in pixels */
+	private static final int CELL_SIZE = 4;
+	private static final int MIN_NEW_PAGE_SIZE = 512;
+
+	private final Settings settings;
+	private final String assetsPath;
+	private final FileHandle cacheFile;
+
+	private Array<PageState> pages;
+	private ObjectMap<Page, PageState> pageStates;
+	private Array<Region> regions;
+	private Array<Region> changedRegions;
+	private Array<String> removedNames;
+
+	public IncrementalAtlasUpdater (Settings settings, String assetsPath, FileHandle cacheFile) {
+		this.settings = settings;
+		this.assetsPath = assetsPath;
+		this.cacheFile = cacheFile;
+	}
+
+	/** @return update result or null if incremental update wasn't possible and whole atlas must be repacked */
+	public Result update (Array<FileHandle> files) {
+		if (cacheFile.exists() == false) return null;
+
+		TextureAtlasData data = new TextureAtlasData(cacheFile, cacheFile.parent(), false);
+
+		pages = new Array<>();
+		pageStates = new ObjectMap<>();
+		regions = new Array<>(data.getRegions());
+		changedRegions = new Array<>();
+		removedNames = new Array<>();
+
+		for (Page page : data.getPages()) {
+			PageState state = new PageState(page, false);
+			pages.add(state);
+			pageStates.put(page, state);
+		}
+
+		for (Region region : regions)
+			if (region.rotate) return null;
+
+		try {
+			for (FileHandle file : files)
+				if (updateImage(file) == false) return null;
+
+			for (PageState page : pages)
+				if (page.pixmap != null) PixmapIO.writePNG(page.page.textureFile, page.pixmap);
+
+			writeAtlas();
+
+			Result result = new Result();
+			result.data = new TextureAtlasData(cacheFile, cacheFile.parent(), false);
+
+			for (Region region : changedRegions) {
+				AlphaMask mask = AlphaMask.create(pageStates.get(region.page).pixmap, region);
+				if (mask != null) result.masks.put(region.name, mask);
+				removedNames.removeValue(region.name, false);
+			}
+
+			result.removedNames.addAll(removedNames);
+
+			for (PageState page : pages)
+				if (page.created == false && page.pixmap != null) result.patches.put(page.page.textureFile.name(), page.createPatches());
+
+			return result;
+		} catch (GdxRuntimeException | IOException e) {
+			Log.exception(e);
+			return null;
+		} finally {
+			for (PageState page : pages)
+				if (page.pixmap != null) page.pixmap.dispose();
+
+			pages = null;
+			pageStates = null;
+			regions = null;
+			changedRegions = null;
+			removedNames = null;
+		}
+	}
+
+	/** @return false if image can't be updated incrementally */
+	private boolean updateImage (FileHandle file) {
+		String path = file.path();
+		if (path.startsWith(assetsPath) == false) return true;
+
+		String name = path.substring(assetsPath.length() + 1);
+		int dotIndex = name.lastIndexOf('.');
+		if (dotIndex != -1) name = name.substring(0, dotIndex);
+
+		if (name.endsWith(".9")) return false;
+
+		int index = -1;
+		if (settings.useIndexes) {
+			Matcher matcher = INDEX_PATTERN.matcher(name);
+			if (matcher.matches()) {
+				name = matcher.group(1);
+				index = Integer.parseInt(matcher.group(2));
+			}
+		}
+
+		Region oldRegion = findRegion(name, index);
+
+		if (file.exists() == false) {
+			if (oldRegion != null) removeRegion(oldRegion);
+			return true;
+		}
+
+		Pixmap image = new Pixmap(file);
+
+		try {
+			if (settings.ignoreBlankImages && isBlank(image)) {
+				if (oldRegion != null) removeRegion(oldRegion);
+				return true;
+			}
+
+			int width = image.getWidth();
+			int height = image.getHeight();
+			if (width + settings.paddingX * 2 > settings.maxWidth || height + settings.paddingY * 2 > settings.maxHeight)
+				return false;
+
+			if (oldRegion != null && isShared(oldRegion) == false && width <= oldRegion.width && height <= oldRegion.height) {
+				//image still fits in its old place
+				PageState page = pageStates.get(oldRegion.page);
+				page.clear(oldRegion.left, oldRegion.top, oldRegion.width, oldRegion.height);
+				page.draw(image, oldRegion.left, oldRegion.top);
+				setSize(oldRegion, width, height);
+				changedRegions.add(oldRegion);
+				return true;
+			}
+
+			if (oldRegion != null) removeRegion(oldRegion);
+
+			Region region = new Region();
+			region.name = name;
+			region.index = index;
+			setSize(region, width, height);
+			place(region);
+
+			PageState page = pageStates.get(region.page);
+			page.clear(region.left - settings.paddingX, region.top - settings.paddingY, width + settings.paddingX * 2, height + settings.paddingY * 2);
+			page.draw(image, region.left, region.top);
+
+			regions.add(region);
+			changedRegions.add(region);
+			return true;
+		} finally {
+			image.dispose();
+		}
+	}
+
+	private Region findRegion (String name, int index) {
+		for (Region region : regions)
+			if (region.index == index && region.name.equals(name)) return region;
+
+		return null;
+	}
+
+	/** @return true if other region uses the same place in page, this happens when packer found identical images */
+	private boolean isShared (Region region) {
+		for (Region other : regions)
+			if (other != region && other.page == region.page && other.left == region.left && other.top == region.top) return true;
+
+		return false;
+	}
+
+	private void removeRegion (Region region) {
+		regions.removeValue(region, true);
+		changedRegions.removeValue(region, true);
+		removedNames.add(region.name);
+		pageStates.get(region.page).cells = null;
+	}
+
+	private void setSize (Region region, int width, int height) {
+		region.width = width;
+		region.height = height;
+		region.originalWidth = width;
+		region.originalHeight = height;
+		region.offsetX = 0;
+		region.offsetY = 0;
+		region.splits = null;
+		region.pads = null;
+	}
+
+	/** Places region in free space of existing page, or on new page if there is no space left */
+	private void place (Region region) {
+		for (PageState page : pages)
+			if (page.place(region)) return;
+
+		int size = MathUtils.nextPowerOfTwo(Math.max(region.width + settings.paddingX * 2, region.height + settings.paddingY * 2));
+		int width = Math.min(Math.max(size, MIN_NEW_PAGE_SIZE), settings.maxWidth);
+		int height = Math.min(Math.max(size, MIN_NEW_PAGE_SIZE), settings.maxHeight);
+
+		Page page = new Page(getNewPageFile(), width, height, settings.filterMin.isMipMap(), settings.format,
+				settings.filterMin, settings.filterMag, settings.wrapX, settings.wrapY);
+
+		PageState state = new PageState(page, true);
+		state.pixmap = new Pixmap(width, height, Format.RGBA8888);
+		state.clear(0, 0, width, height);
+		pages.add(state);
+		pageStates.put(page, state);
+
+		if (state.place(region) == false) throw new IllegalStateException("Region doesn't fit on new page");
+	}
+
+	/** @return first unused page file name, the same naming as texture packer uses */
+	private FileHandle getNewPageFile () {
+		String prefix = cacheFile.nameWithoutExtension();
+
+		for (int i = 2; ; i++) {
+			FileHandle file = cacheFile.sibling(prefix + i + "." + settings.outputFormat);
+			if (file.exists() == false && isPageUsed(file) == false) return file;
+		}
+	}
+
+	private boolean isPageUsed (FileHandle file) {
+		for (PageState page : pages)
+			if (page.page.textureFile.equals(file)) return true;
+
+		return false;
+	}
+
+	private boolean isBlank (Pixmap image) {
+		for (int y = 0; y < image.getHeight(); y++)
+			for (int x = 0; x < image.getWidth(); x++)
+				if ((image.getPixel(x, y) & 0xff) != 0) return false;
+
+		return true;
+	}
+
+	/** Writes atlas file in the same format as texture packer */
+	private void writeAtlas () throws IOException {
+		Writer writer = cacheFile.writer(false);
+
+		try {
+			for (PageState state : pages) {
+				Page page = state.page;
+				writer.write("\n" + page.textureFile.name() + "\n");
+				writer.write("size: " + (int) page.width + "," + (int) page.height + "\n");
+				writer.write("format: " + page.format + "\n");
+				writer.write("filter: " + page.minFilter + "," + page.magFilter + "\n");
+				writer.write("repeat: " + getRepeatValue(page) + "\n");
+
+				for (Region region : regions) {
+					if (region.page != page) continue;
+
+					writer.write(region.name + "\n");
+					writer.write("  rotate: false\n");
+					writer.write("  xy: " + region.left + ", " + region.top + "\n");
+					writer.write("  size: " + region.width + ", " + region.height + "\n");
+					if (region.splits != null) writer.write("  split: " + join(region.splits) + "\n");
+					if (region.pads != null) {
+						if (region.splits == null) writer.write("  split: 0, 0, 0, 0\n");
+						writer.write("  pad: " + join(region.pads) + "\n");
+					}
+					writer.write("  orig: " + region.originalWidth + ", " + region.originalHeight + "\n");
+					writer.write("  offset: " + (int) region.offsetX + ", " + (int) region.offsetY + "\n");
+					writer.write("  index: " + region.index + "\n");
+				}
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private String join (int[] values) {
+		return values[0] + ", " + values[1] + ", " + values[2] + ", " + values[3];
+	}
+
+	private String getRepeatValue (Page page) {
+		boolean repeatX = page.uWrap == TextureWrap.Repeat;
+		boolean repeatY = page.vWrap == TextureWrap.Repeat;
+		if (repeatX && repeatY) return "xy";
+		if (repeatX) return "x";
+		if (repeatY) return "y";
+		return "none";
+	}
+
+	/** Result of incremental update, must be applied on GL thread */
+	static class Result {
+		/** Updated atlas */
+		public TextureAtlasData data;
+		/** Changed areas of pages that existed before update, keyed by page file name. Pages that are not here didn't change. */
+		public ObjectMap<String, Array<PagePatch>> patches = new ObjectMap<>();
+		/** New alpha masks of changed regions */
+		public ObjectMap<String, AlphaMask> masks = new ObjectMap<>();
+		/** Names of regions that were removed from atlas */
+		public Array<String> removedNames = new Array<>();
+	}
+
+	/** Changed area of page, pixmap must be uploaded to page texture at given position and then disposed */
+	static class PagePatch {
+		public final int x, y;
+		public final Pixmap pixmap;
+
+		public PagePatch (int x, int y, Pixmap pixmap) {
+			this.x = x;
+			this.y = y;
+			this.pixmap = pixmap;
+		}
+	}
+
+	private class PageState {
+		final Page page;
+		/** True if page was created during this update */
+		final boolean created;
+		final int width, height;
+
+		/** Page image, loaded when page is modified for the first time */
+		Pixmap pixmap;
+		/** Modified areas, four values per area: x, y, width, height */
+		Array<int[]> dirtyAreas = new Array<>();
+
+		/** Cells covered by regions, built when searching for free space, null if it has to be rebuilt */
+		boolean[] cells;
+		int columns, rows;
+
+		PageState (Page page, boolean created) {
+			this.page = page;
+			this.created = created;
+			width = (int) page.width;
+			height = (int) page.height;
+		}
+
+		/** @return false if there is no free space for region on this page */
+		boolean place (Region region) {
+			if (cells == null) buildCells();
+
+			int regionColumns = (region.width + CELL_SIZE - 1) / CELL_SIZE;
+			int regionRows = (region.height + CELL_SIZE - 1) / CELL_SIZE;
+
+			for (int row = 0; row + regionRows <= rows; row++) {
+				for (int column = 0; column + regionColumns <= columns; column++) {
+					if (isFree(column, row, regionColumns, regionRows)) {
+						region.page = page;
+						region.left = column * CELL_SIZE;
+						region.top = row * CELL_SIZE;
+						markUsed(region);
+						return true;
+					}
+				}
+			}
+
+			return false;
+		}
+
+		private boolean isFree (int column, int row, int regionColumns, int regionRows) {
+			for (int y = row; y < row + regionRows; y++)
+				for (int x = column; x < column + regionColumns; x++)
+					if (cells[y * columns + x]) return false;
+
+			return true;
+		}
+
+		private void buildCells () {
+			columns = width / CELL_SIZE;
+			rows = height / CELL_SIZE;
+			cells = new boolean[columns * rows];
+
+			for (Region region : regions)
+				if (region.page == page) markUsed(region);
+		}
+
+		/** Marks cells covered by region and its padding as used */
+		private void markUsed (Region region) {
+			int startX = Math.max(0, (region.left - settings.paddingX) / CELL_SIZE);
+			int startY = Math.max(0, (region.top - settings.paddingY) / CELL_SIZE);
+			int endX = Math.min(columns, (region.left + region.width + settings.paddingX + CELL_SIZE - 1) / CELL_SIZE);
+			int endY = Math.min(rows, (region.top + region.height + settings.paddingY + CELL_SIZE - 1) / CELL_SIZE);
+
+			for (int y = startY; y < endY; y++)
+				for (int x = startX; x < endX; x++)
+					cells[y * columns + x] = true;
+		}
+
+		private Pixmap getPixmap () {
+			if (pixmap == null) {
+				pixmap = new Pixmap(page.textureFile);
+				if (pixmap.getFormat() != Format.RGBA8888)
+					throw new GdxRuntimeException("Unsupported texture cache page format: " + pixmap.getFormat());
+			}
+
+			return pixmap;
+		}
+
+		/** Makes area of page transparent and marks it as modified, area is clamped to page bounds */
+		void clear (int x, int y, int areaWidth, int areaHeight) {
+			int startX = Math.max(0, x), startY = Math.max(0, y);
+			int endX = Math.min(width, x + areaWidth), endY = Math.min(height, y + areaHeight);
+			if (startX >= endX || startY >= endY) return;
+
+			ByteBuffer pixels = getPixmap().getPixels();
+			for (int py = startY; py < endY; py++)
+				for (int px = startX; px < endX; px++)
+					putPixel(pixels, (py * width + px) * 4, 0);
+
+			dirtyAreas.add(new int[]{startX, startY, endX - startX, endY - startY});
+		}
+
+		/** Copies image to page without blending, area must be cleared first so it's marked as modified */
+		void draw (Pixmap image, int x, int y) {
+			ByteBuffer pixels = getPixmap().getPixels();
+
+			if (image.getFormat() == Format.RGBA8888) {
+				ByteBuffer imagePixels = image.getPixels();
+				int rowSize = image.getWidth() * 4;
+
+				for (int py = 0; py < image.getHeight(); py++) {
+					int offset = ((y + py) * width + x) * 4;
+					for (int i = 0; i < rowSize; i++)
+						pixels.put(offset + i, imagePixels.get(py * rowSize + i));
+				}
+
+				return;
+			}
+
+			for (int py = 0; py < image.getHeight(); py++)
+				for (int px = 0; px < image.getWidth(); px++)
+					putPixel(pixels, ((y + py) * width + x + px) * 4, image.getPixel(px, py));
+		}
+
+		private void putPixel (ByteBuffer pixels, int offset, int rgba) {
+			pixels.put(offset, (byte) (rgba >>> 24));
+			pixels.put(offset + 1, (byte) (rgba >>> 16));
+			pixels.put(offset + 2, (byte) (rgba >>> 8));
+			pixels.put(offset + 3, (byte) rgba);
+		}
+
+		/** @return copies of modified page areas */
+		Array<PagePatch> createPatches () {
+			Array<PagePatch> patches = new Array<>(dirtyAreas.size);
+			ByteBuffer pixels = pixmap.getPixels();
+
+			for (int[] area : dirtyAreas) {
+				Pixmap patch = new Pixmap(area[2], area[3], Format.RGBA8888);
+				ByteBuffer patchPixels = patch.getPixels();
+
+				for (int row = 0; row < area[3]; row++) {
+					int offset = ((area[1] + row) * width + area[0]) * 4;
+					for (int i = 0; i < area[2] * 4; i++)
+						patchPixels.put(row * area[2] * 4 + i, pixels.get(offset + i));
+				}
+
+				patches.add(new PagePatch(area[0], area[1], patch));
+			}
+
+			return patches;
+		}
+	}
+}
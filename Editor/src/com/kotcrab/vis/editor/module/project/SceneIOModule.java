@@ -19,32 +19,80 @@
 
 package com.kotcrab.vis.editor.module.project;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoFactory;
+import com.esotericsoftware.kryo.pool.KryoPool;
 import com.esotericsoftware.kryo.serializers.CompatibleFieldSerializer;
 import com.kotcrab.vis.editor.module.scene.EditorScene;
 import com.kotcrab.vis.editor.module.scene.Object2d;
 import com.kotcrab.vis.editor.module.scene.EditorSceneObject;
+import com.kotcrab.vis.editor.module.scene.SceneChunks;
+import com.kotcrab.vis.editor.module.scene.SceneJournal;
+import com.kotcrab.vis.editor.module.scene.SceneMetadata;
+import com.kotcrab.vis.editor.util.ArraySerializer;
 import com.kotcrab.vis.editor.util.Log;
 import com.kotcrab.vis.runtime.scene.SceneViewport;
 import com.kotcrab.vis.runtime.data.SpriteData;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Loads and saves scenes, can be used from any thread. Scene files are read and written by Kryo instances taken from pool,
+ * sprites of loaded scenes are always created on thread that requested loading because {@link TextureCacheModule} isn't
+ * thread safe.
+ */
 @SuppressWarnings("rawtypes")
 public class SceneIOModule extends ProjectModule {
-	private Kryo kryo;
+	private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+	private KryoPool kryoPool;
+
+	private ExecutorService loadExecutor;
+	private ExecutorService saveExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread (Runnable runnable) {
+			return new Thread(runnable, "SceneSaver");
+		}
+	});
+	private final ObjectMap<String, SaveTask> pendingSaves = new ObjectMap<>();
+	/** Journals of loaded and saved scenes, used only by save thread */
+	private Map<EditorScene, SceneJournal> journals = new WeakHashMap<>();
 
 	private TextureCacheModule cacheModule;
 	private FileAccessModule fileAccessModule;
 
 	private FileHandle visFolder;
 
+	@Override
+	public Class<?>[] getDependencies () {
+		return new Class<?>[]{FileAccessModule.class, TextureCacheModule.class, SceneMetadataModule.class};
+	}
+
 	@Override
 	public void init () {
 		cacheModule = projectContainer.get(TextureCacheModule.class);
@@ -52,61 +100,314 @@ public class SceneIOModule extends ProjectModule {
 
 		visFolder = fileAccessModule.getVisFolder();
 
-		kryo = new Kryo();
+		kryoPool = new KryoPool.Builder(new KryoFactory() {
+			@Override
+			public Kryo create () {
+				return createSceneFileKryo();
+			}
+		}).softReferences().build();
+
+		final AtomicInteger loaderThreads = new AtomicInteger();
+		loadExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			@Override
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, "SceneLoader-" + loaderThreads.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Creates new Kryo instance configured for serializing scenes and scene objects in memory, for example by undo. Kryo
+	 * instances are not thread safe. Must not be used for scene files, see {@link #createSceneFileKryo()}.
+	 */
+	public Kryo createKryo () {
+		Kryo kryo = createSceneFileKryo();
+		kryo.register(Array.class, new ArraySerializer());
+		return kryo;
+	}
+
+	/**
+	 * Creates new Kryo instance for reading and writing scene files. Scene files written before chunks were introduced have
+	 * objects array serialized by default serializer, so registrations must stay the same as when those files were written.
+	 */
+	static Kryo createSceneFileKryo () {
+		Kryo kryo = new Kryo();
 		kryo.setDefaultSerializer(CompatibleFieldSerializer.class);
 		kryo.register(EditorScene.class);
 		kryo.register(SpriteData.class);
 		kryo.register(SceneViewport.class);
+		return kryo;
 	}
 
+	/** Loads scene file and applies changes from its journal */
 	public EditorScene load (FileHandle file) {
+		EditorScene scene = readScene(file.file());
+		if (scene != null) finishLoading(scene, file.file());
+		return scene;
+	}
+
+	/**
+	 * Loads multiple scenes for reading, for example by export. Must not be called on GL thread. Scene files are deserialized
+	 * concurrently, then scene journals are replayed on GL thread. Objects of loaded scenes don't have sprites and loaded
+	 * scenes don't get scene journal, {@link #load(FileHandle)} must be used for scenes that will be edited.
+	 * @return loaded scenes in order of provided files, scene that couldn't be loaded is null
+	 */
+	public Array<EditorScene> loadAll (Collection<FileHandle> files) {
+		List<Future<EditorScene>> futures = new ArrayList<>(files.size());
+
+		for (final FileHandle file : files) {
+			futures.add(loadExecutor.submit(new Callable<EditorScene>() {
+				@Override
+				public EditorScene call () {
+					EditorScene scene = readScene(file.file());
+					if (scene != null) scene.rebuildIndexes();
+					return scene;
+				}
+			}));
+		}
+
+		final Array<EditorScene> scenes = new Array<>(files.size());
+		final Array<File> sceneFiles = new Array<>(files.size());
+		int index = 0;
+
+		for (FileHandle file : files) {
+			EditorScene scene = null;
+
+			try {
+				scene = futures.get(index++).get();
+			} catch (InterruptedException | ExecutionException e) {
+				Log.exception(e);
+			}
+
+			scenes.add(scene);
+			sceneFiles.add(file.file());
+		}
+
+		//replay gives objects new versions and creates sprites of added objects, that state is shared with opened scenes
+		FutureTask<Void> replayTask = new FutureTask<>(new Runnable() {
+			@Override
+			public void run () {
+				for (int i = 0; i < scenes.size; i++)
+					if (scenes.get(i) != null) SceneJournal.replay(SceneIOModule.this, scenes.get(i), sceneFiles.get(i));
+			}
+		}, null);
+
+		Gdx.app.postRunnable(replayTask);
+
 		try {
-			Input input = new Input(new FileInputStream(file.file()));
-			EditorScene scene = kryo.readObject(input, EditorScene.class);
-			scene.path = fileAccessModule.relativizeToVisFolder(file.path());
-			input.close();
+			replayTask.get();
+		} catch (InterruptedException | ExecutionException e) {
+			Log.exception(e);
+			for (int i = 0; i < scenes.size; i++)
+				scenes.set(i, null);
+		}
+
+		return scenes;
+	}
+
+	/**
+	 * Loads scene that will be edited. If scene file has chunks, only objects around last camera position are loaded before
+	 * this method returns, rest of them is loaded in background, see {@link EditorScene#finishLoading()}. Scene that has
+	 * changes in journal is always loaded fully, because journal can be only applied to complete scene.
+	 */
+	public EditorScene loadForEditing (FileHandle file) {
+		SceneChunks chunks = readChunks(file.file());
+		if (chunks == null) return null;
+
+		EditorScene scene = chunks.getScene();
 
-			prepareSceneAfterLoad(scene);
+		if (chunks.isChunked() == false || SceneJournal.hasChanges(file.file(), scene.journalGeneration)) {
+			if (readObjects(chunks) == null) return null;
+			finishLoading(scene, file.file());
+		} else
+			new ChunkStreamer(this, chunks, file.file()).start(getInitialViewArea(scene), loadExecutor);
+
+		return scene;
+	}
+
+	private Rectangle getInitialViewArea (EditorScene scene) {
+		SceneMetadata metadata = projectContainer.get(SceneMetadataModule.class).getMap().get(scene.path);
+		float x = scene.width / 2;
+		float y = scene.height / 2;
+		float zoom = 1;
+
+		if (metadata != null) {
+			x = metadata.lastCameraX;
+			y = metadata.lastCameraY;
+			zoom = metadata.lastCameraZoom;
+		}
+
+		//area is twice as big as screen so objects right next to visible area are loaded too
+		float width = Gdx.graphics.getWidth() * zoom * 2;
+		float height = Gdx.graphics.getHeight() * zoom * 2;
+		return new Rectangle(x - width / 2, y - height / 2, width, height);
+	}
 
-			return scene;
-		} catch (FileNotFoundException e) {
+	/** Deserializes scene file with all its objects, can be called on any thread */
+	private EditorScene readScene (File file) {
+		SceneChunks chunks = readChunks(file);
+		return chunks == null ? null : readObjects(chunks);
+	}
+
+	/** Reads scene data and chunk directory, can be called on any thread */
+	private SceneChunks readChunks (File file) {
+		Kryo kryo = kryoPool.borrow();
+
+		try {
+			SceneChunks chunks = SceneChunks.read(kryo, Files.readAllBytes(file.toPath()));
+			chunks.getScene().path = fileAccessModule.relativizeToVisFolder(file.getPath());
+			return chunks;
+		} catch (IOException | KryoException e) {
 			Log.exception(e);
+			return null;
+		} finally {
+			kryoPool.release(kryo);
 		}
-		return null;
 	}
 
-	private void prepareSceneAfterLoad (EditorScene scene) {
-		for (EditorSceneObject object : scene.objects) {
-			if (object instanceof Object2d) {
-				Object2d object2d = (Object2d) object;
-				object2d.sprite = new Sprite(cacheModule.getRegion(object2d.regionRelativePath));
-				object2d.loadSpriteValuesFromData();
+	private EditorScene readObjects (SceneChunks chunks) {
+		try {
+			return chunks.readAll();
+		} catch (KryoException e) {
+			Log.exception(e);
+			return null;
+		}
+	}
+
+	/** Creates sprites, applies scene journal and prepares journal for next save */
+	private void finishLoading (EditorScene scene, File sceneFile) {
+		prepareSceneAfterLoad(scene);
+		registerJournal(scene, sceneFile, SceneJournal.replay(this, scene, sceneFile));
+	}
+
+	/** Must be called on GL thread after scene was fully loaded and its journal was replayed */
+	void registerJournal (final EditorScene scene, final File sceneFile, final long journalLength) {
+		final EditorScene savedScene = scene.createSaveSnapshot();
+
+		saveExecutor.execute(new Runnable() {
+			@Override
+			public void run () {
+				journals.put(scene, new SceneJournal(sceneFile, savedScene, journalLength));
 			}
+		});
+	}
+
+	private void prepareSceneAfterLoad (EditorScene scene) {
+		for (EditorSceneObject object : scene.getObjects())
+			prepareObjectAfterLoad(object);
+
+		scene.rebuildIndexes();
+	}
+
+	/** Recreates runtime state (such as sprite) of object that was deserialized */
+	public void prepareObjectAfterLoad (EditorSceneObject object) {
+		if (object instanceof Object2d) {
+			Object2d object2d = (Object2d) object;
+			object2d.setRegion(cacheModule.getRegion(object2d.regionRelativePath));
 		}
 	}
 
+	/** Saves scene synchronously, waits until all pending asynchronous saves are finished */
 	public boolean save (EditorScene scene) {
-		prepareSceneForSave(scene);
+		SaveTask task = scheduleSave(scene, null);
+		waitForPendingSaves();
+		return task.success;
+	}
 
+	/**
+	 * Saves scene on background thread. Scene snapshot is taken immediately so scene can be modified while it's being saved.
+	 * If previous save of same scene hasn't started yet, it is replaced by this one.
+	 * @param callback called on GL thread when save has finished, may be null
+	 */
+	public void saveAsync (EditorScene scene, SaveCallback callback) {
+		scheduleSave(scene, callback);
+	}
+
+	private SaveTask scheduleSave (EditorScene scene, SaveCallback callback) {
+		scene.finishLoading();
+		EditorScene snapshot = scene.createSaveSnapshot();
+		File file = getFileHandleForScene(scene).file();
+
+		synchronized (pendingSaves) {
+			SaveTask task = pendingSaves.get(file.getPath());
+
+			if (task == null) {
+				task = new SaveTask(file, scene);
+				pendingSaves.put(file.getPath(), task);
+				saveExecutor.execute(task);
+			}
+
+			task.snapshot = snapshot;
+			if (callback != null) task.callbacks.add(callback);
+			return task;
+		}
+	}
+
+	/** Blocks until all scheduled saves were written */
+	public void waitForPendingSaves () {
 		try {
-			Output output = new Output(new FileOutputStream(getFileHandleForScene(scene).file()));
-			kryo.writeObject(output, scene);
-			output.close();
-			return true;
-		} catch (FileNotFoundException e) {
+			saveExecutor.submit(new Runnable() {
+				@Override
+				public void run () {
+				}
+			}).get();
+		} catch (InterruptedException | ExecutionException e) {
 			Log.exception(e);
 		}
+	}
 
-		return false;
+	/**
+	 * Appends changes to scene journal, scene file is rewritten only if scene has no journal yet or when journal became too large.
+	 * Must be called on save thread.
+	 */
+	private boolean writeChanges (EditorScene scene, File file, EditorScene snapshot) {
+		SceneJournal journal = journals.get(scene);
+
+		if (journal != null && journal.append(snapshot) && journal.shouldCompact() == false) return true;
+
+		snapshot.journalGeneration = (journal != null ? journal.getGeneration() : snapshot.journalGeneration) + 1;
+		if (writeScene(file, snapshot) == false) {
+			journals.remove(scene);
+			return false;
+		}
+
+		//outdated journal would be ignored anyway because of different generation
+		SceneJournal.getJournalFile(file).delete();
+		journals.put(scene, new SceneJournal(file, snapshot, 0));
+		return true;
 	}
 
-	private void prepareSceneForSave (EditorScene scene) {
-		for (EditorSceneObject object : scene.objects) {
-			if (object instanceof Object2d) {
-				Object2d object2d = (Object2d) object;
-				object2d.saveSpriteDataValuesToData();
+	/** Writes scene to temporary file first and then moves it to target location, so scene file is never left partially written */
+	private boolean writeScene (File file, EditorScene scene) {
+		File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		Kryo kryo = kryoPool.borrow();
+
+		try {
+			Output output = new Output(Files.newOutputStream(tempFile.toPath()), OUTPUT_BUFFER_SIZE);
+
+			try {
+				SceneChunks.write(kryo, output, scene);
+			} finally {
+				output.close();
 			}
+
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			return true;
+		} catch (IOException | KryoException e) {
+			Log.exception(e);
+			tempFile.delete();
+		} finally {
+			kryoPool.release(kryo);
 		}
+
+		return false;
 	}
 
 	public void create (FileHandle relativeScenePath, SceneViewport viewport, int width, int height) {
@@ -117,4 +418,60 @@ public class SceneIOModule extends ProjectModule {
 	public FileHandle getFileHandleForScene (EditorScene scene) {
 		return visFolder.child(scene.path);
 	}
+
+	@Override
+	public void dispose () {
+		loadExecutor.shutdownNow();
+		saveExecutor.shutdown();
+
+		try {
+			if (saveExecutor.awaitTermination(1, TimeUnit.MINUTES) == false)
+				Log.error("Timed out while waiting for scenes to be saved");
+		} catch (InterruptedException e) {
+			Log.exception(e);
+		}
+	}
+
+	public interface SaveCallback {
+		void finished (boolean success);
+	}
+
+	private class SaveTask implements Runnable {
+		final File file;
+		final EditorScene scene;
+		EditorScene snapshot;
+		Array<SaveCallback> callbacks = new Array<>();
+		boolean success;
+
+		public SaveTask (File file, EditorScene scene) {
+			this.file = file;
+			this.scene = scene;
+		}
+
+		@Override
+		public void run () {
+			final EditorScene snapshot;
+			final Array<SaveCallback> callbacks;
+
+			//after task is removed from pending saves no new snapshot can be set
+			synchronized (pendingSaves) {
+				pendingSaves.remove(file.getPath());
+				snapshot = this.snapshot;
+				callbacks = this.callbacks;
+			}
+
+			final boolean success = writeChanges(scene, file, snapshot);
+			this.success = success;
+
+			if (callbacks.size > 0) {
+				Gdx.app.postRunnable(new Runnable() {
+					@Override
+					public void run () {
+						for (SaveCallback callback : callbacks)
+							callback.finished(success);
+					}
+				});
+			}
+		}
+	}
 }
@@ -31,6 +31,11 @@ public class SceneMetadataModule extends ProjectModule {
 
 	private SceneMetadataList metadata;
 
+	@Override
+	public Class<?>[] getDependencies () {
+		return new Class<?>[]{FileAccessModule.class};
+	}
+
 	@Override
 	public void init () {
 		json = new Json();
@@ -21,8 +21,15 @@ package com.kotcrab.vis.editor.module.project;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Page;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Region;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.ObjectMap.Entry;
 import com.badlogic.gdx.utils.Timer;
@@ -31,10 +38,17 @@ import com.kotcrab.vis.editor.App;
 import com.kotcrab.vis.editor.Assets;
 import com.kotcrab.vis.editor.event.StatusBarEvent;
 import com.kotcrab.vis.editor.event.TexturesReloadedEvent;
+import com.kotcrab.vis.editor.module.project.IncrementalAtlasUpdater.PagePatch;
+import com.kotcrab.vis.editor.module.project.IncrementalAtlasUpdater.Result;
+import com.kotcrab.vis.editor.util.AlphaMask;
 import com.kotcrab.vis.editor.util.DirectoryWatcher.WatchListener;
 import com.kotcrab.vis.editor.util.texturepacker.TexturePacker;
 import com.kotcrab.vis.editor.util.texturepacker.TexturePacker.Settings;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 public class TextureCacheModule extends ProjectModule implements WatchListener {
 	private AssetsWatcherModule watcher;
 
@@ -44,17 +58,36 @@ public class TextureCacheModule extends ProjectModule implements WatchListener {
 	private Settings settings;
 
 	private ObjectMap<String, TextureRegion> regions;
+	/** Alpha masks of cache regions, replaced as a whole when atlas is reloaded */
+	private ObjectMap<String, AlphaMask> masks = new ObjectMap<>();
 
 	private TextureRegion loadingRegion;
 	private TextureRegion missingRegion;
 
 	private FileHandle cacheFile;
 	private TextureAtlas cache;
+	/** Textures of cache pages keyed by page file name, textures of unchanged pages are reused after incremental update */
+	private ObjectMap<String, Texture> pageTextures = new ObjectMap<>();
+
+	private IncrementalAtlasUpdater incrementalUpdater;
+	/** Images changed since last update, accessed only when synchronized on this array */
+	private final Array<FileHandle> changedFiles = new Array<>();
+	private ExecutorService updateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread (Runnable runnable) {
+			return new Thread(runnable, "TextureCache");
+		}
+	});
 
 	private Timer waitTimer;
 
 	private boolean firstReload = true;
 
+	@Override
+	public Class<?>[] getDependencies () {
+		return new Class<?>[]{FileAccessModule.class, AssetsWatcherModule.class};
+	}
+
 	@Override
 	public void init () {
 		FileAccessModule fileAccess = projectContainer.get(FileAccessModule.class);
@@ -76,39 +109,109 @@ public class TextureCacheModule extends ProjectModule implements WatchListener {
 		cacheFile = out.child("cache.atlas");
 
 		assetsPath = fileAccess.getAssetsFolder().path();
+		incrementalUpdater = new IncrementalAtlasUpdater(settings, assetsPath, cacheFile);
 
 		watcher.addListener(this);
 
-		if (cacheFile.exists()) cache = new TextureAtlas(cacheFile);
+		if (cacheFile.exists()) cache = createAtlas(new TextureAtlasData(cacheFile, cacheFile.parent(), false), null);
 		updateCache();
 	}
 
 	private void updateCache () {
-		new Thread(new Runnable() {
+		updateExecutor.execute(new Runnable() {
 			@Override
 			public void run () {
 				performUpdate();
 			}
-		}, "TextureCache").start();
+		});
 	}
 
 	private void performUpdate () {
-		TexturePacker.processIfModified(settings, assetsPath, outPath, "cache");
+		Array<FileHandle> files;
+		synchronized (changedFiles) {
+			files = new Array<>(changedFiles);
+			changedFiles.clear();
+		}
+
+		if (files.size > 0) {
+			final Result result = incrementalUpdater.update(files);
+
+			if (result != null) {
+				Gdx.app.postRunnable(new Runnable() {
+					@Override
+					public void run () {
+						applyIncrementalUpdate(result);
+					}
+				});
+				return;
+			}
+		}
+
+		//when atlas wasn't repacked, textures of already loaded pages are still valid
+		final boolean repacked = files.size > 0 || TexturePacker.isModified(assetsPath, outPath, "cache");
+		if (repacked) TexturePacker.process(settings, assetsPath, outPath, "cache");
+
+		if (cacheFile.exists() == false) return;
+
+		final TextureAtlasData data = new TextureAtlasData(cacheFile, cacheFile.parent(), false);
+		final ObjectMap<String, AlphaMask> newMasks = createAlphaMasks(data);
 
 		Gdx.app.postRunnable(new Runnable() {
 			@Override
 			public void run () {
-				reloadAtlas();
+				masks = newMasks;
+				reloadAtlas(data, repacked ? null : new ObjectMap<String, Array<PagePatch>>());
 			}
 		});
 	}
 
-	private void reloadAtlas () {
+	private void applyIncrementalUpdate (Result result) {
+		ObjectMap<String, AlphaMask> newMasks = new ObjectMap<>(masks);
+		for (String name : result.removedNames)
+			newMasks.remove(name);
+		newMasks.putAll(result.masks);
+		masks = newMasks;
+
+		reloadAtlas(result.data, result.patches);
+	}
+
+	/** Creates alpha masks of all regions from atlas page images, called on texture cache thread right after packing */
+	private ObjectMap<String, AlphaMask> createAlphaMasks (TextureAtlasData data) {
+		ObjectMap<String, AlphaMask> newMasks = new ObjectMap<>();
+
+		for (Page page : data.getPages()) {
+			Pixmap pixmap = new Pixmap(page.textureFile);
+
+			for (Region region : data.getRegions()) {
+				//first region with given name wins, the same way as in TextureAtlas#findRegion
+				if (region.page != page || newMasks.containsKey(region.name)) continue;
+
+				AlphaMask mask = AlphaMask.create(pixmap, region);
+				if (mask != null) newMasks.put(region.name, mask);
+			}
+
+			pixmap.dispose();
+		}
+
+		return newMasks;
+	}
+
+	/**
+	 * @param patches changed areas of pages after incremental update, if not null textures of pages that existed before are
+	 * reused and only changed areas are uploaded. If null all page textures are loaded again.
+	 */
+	private void reloadAtlas (TextureAtlasData data, ObjectMap<String, Array<PagePatch>> patches) {
 		TextureAtlas oldCache = null;
 
 		if (cache != null) oldCache = cache;
 
-		cache = new TextureAtlas(cacheFile);
+		cache = createAtlas(data, patches);
+
+		//reused textures are now owned by new atlas and must not be disposed with old one
+		if (oldCache != null) {
+			for (Texture texture : pageTextures.values())
+				oldCache.getTextures().remove(texture);
+		}
 
 		for (Entry<String, TextureRegion> e : regions.entries()) {
 			String path = e.key;
@@ -132,6 +235,44 @@ public class TextureCacheModule extends ProjectModule implements WatchListener {
 		}
 	}
 
+	private TextureAtlas createAtlas (TextureAtlasData data, ObjectMap<String, Array<PagePatch>> patches) {
+		ObjectMap<String, Texture> newPageTextures = new ObjectMap<>();
+
+		for (Page page : data.getPages()) {
+			String name = page.textureFile.name();
+			Texture texture = patches != null ? pageTextures.get(name) : null;
+			Array<PagePatch> pagePatches = patches != null ? patches.get(name) : null;
+
+			if (texture == null)
+				texture = new Texture(page.textureFile, page.format, page.useMipMaps);
+			else if (pagePatches != null)
+				upload(texture, pagePatches);
+
+			if (pagePatches != null) {
+				for (PagePatch patch : pagePatches)
+					patch.pixmap.dispose();
+			}
+
+			page.texture = texture;
+			newPageTextures.put(name, texture);
+		}
+
+		pageTextures = newPageTextures;
+		return new TextureAtlas(data);
+	}
+
+	/** Uploads only changed areas of page, texture can't be drawn to using Texture#draw because it is managed */
+	private void upload (Texture texture, Array<PagePatch> patches) {
+		texture.bind();
+		Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+
+		for (PagePatch patch : patches) {
+			Pixmap pixmap = patch.pixmap;
+			Gdx.gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, patch.x, patch.y, pixmap.getWidth(), pixmap.getHeight(),
+					pixmap.getGLFormat(), pixmap.getGLType(), pixmap.getPixels());
+		}
+	}
+
 	private void disposeOldCacheLater (final TextureAtlas oldCache) {
 		Timer.instance().scheduleTask(new Task() {
 			@Override
@@ -143,6 +284,7 @@ public class TextureCacheModule extends ProjectModule implements WatchListener {
 
 	@Override
 	public void dispose () {
+		updateExecutor.shutdown();
 		cache.dispose();
 		watcher.removeListener(this);
 	}
@@ -150,6 +292,10 @@ public class TextureCacheModule extends ProjectModule implements WatchListener {
 	@Override
 	public void fileChanged (FileHandle file) {
 		if (file.extension().equals("jpg") || file.extension().equals("png")) {
+			synchronized (changedFiles) {
+				if (changedFiles.contains(file, false) == false) changedFiles.add(file);
+			}
+
 			waitTimer.clear();
 			waitTimer.scheduleTask(new Task() {
 				@Override
@@ -178,6 +324,11 @@ public class TextureCacheModule extends ProjectModule implements WatchListener {
 		return region;
 	}
 
+	/** @return alpha mask of region with given path or null if region has no mask, for example when it is still loading */
+	public AlphaMask getAlphaMask (String relativePath) {
+		return masks.get(relativePath);
+	}
+
 	private String resolvePath (FileHandle file) {
 		String path = file.path();
 
@@ -24,16 +24,20 @@ import com.badlogic.gdx.Input.Buttons;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.kotcrab.vis.editor.module.project.SceneMetadataModule;
 
+import java.util.EnumSet;
+
 public class CameraModule extends SceneModule {
 	private SceneMetadataModule metadataModule;
 
 	private OrthographicCamera camera;
 
 	private Vector3 unprojectVec;
+	private Rectangle visibleArea = new Rectangle();
 
 	private SceneMetadata metadata;
 
@@ -96,6 +100,11 @@ public class CameraModule extends SceneModule {
 		batch.setProjectionMatrix(camera.combined);
 	}
 
+	@Override
+	public EnumSet<SceneInputEvent> getHandledInputEvents () {
+		return EnumSet.of(SceneInputEvent.SCROLLED, SceneInputEvent.TOUCH_DOWN, SceneInputEvent.TOUCH_DRAGGED);
+	}
+
 	@Override
 	public boolean scrolled (InputEvent event, float x, float y, int amount) {
 		float newZoom = 0;
@@ -161,6 +170,13 @@ public class CameraModule extends SceneModule {
 		return camera.zoom;
 	}
 
+	/** @return area of scene that is currently visible, returned rectangle is reused between calls */
+	public Rectangle getVisibleArea () {
+		float width = getWidth();
+		float height = getHeight();
+		return visibleArea.set(camera.position.x - width / 2, camera.position.y - height / 2, width, height);
+	}
+
 	public Vector3 unproject (Vector3 vector) {
 		return camera.unproject(vector);
 	}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.kotcrab.vis.editor.module.project.TextureCacheModule;
+
+import java.util.Arrays;
+
+/**
+ * Serializes copied objects to compact form stored in {@link com.kotcrab.vis.editor.module.project.ClipboardModule}. Region
+ * paths are written once to string table and objects refer to them by index, positions are relative to center of copied
+ * objects bounds.
+ */
+class ClipboardSerializer {
+	/** Objects are written in their scene z-order, so pasted objects are stacked same way as originals regardless of selection order */
+	public static byte[] write (EditorScene scene, Array<Object2d> selectedObjects) {
+		Array<Object2d> objects = sortByZIndex(scene, selectedObjects);
+
+		Rectangle bounds = new Rectangle();
+		Rectangle objectBounds = new Rectangle();
+		ObjectIntMap<String> regionIndexes = new ObjectIntMap<>();
+		Array<String> regionPaths = new Array<>();
+
+		for (int i = 0; i < objects.size; i++) {
+			Object2d object = objects.get(i);
+
+			if (i == 0)
+				object.getBoundingRectangle(bounds);
+			else
+				bounds.merge(object.getBoundingRectangle(objectBounds));
+
+			if (regionIndexes.containsKey(object.regionRelativePath) == false) {
+				regionIndexes.put(object.regionRelativePath, regionPaths.size);
+				regionPaths.add(object.regionRelativePath);
+			}
+		}
+
+		float centerX = bounds.x + bounds.width / 2;
+		float centerY = bounds.y + bounds.height / 2;
+
+		Output output = new Output(4096, -1);
+		output.writeInt(regionPaths.size, true);
+		for (String path : regionPaths)
+			output.writeString(path);
+
+		output.writeInt(objects.size, true);
+		for (Object2d object : objects) {
+			output.writeInt(regionIndexes.get(object.regionRelativePath, 0), true);
+			output.writeString(object.id);
+			object.writePacked(output, -centerX, -centerY);
+		}
+
+		return output.toBytes();
+	}
+
+	private static Array<Object2d> sortByZIndex (EditorScene scene, Array<Object2d> objects) {
+		long[] sortKeys = new long[objects.size];
+		for (int i = 0; i < objects.size; i++)
+			sortKeys[i] = (long) scene.indexOf(objects.get(i)) << 32 | i;
+
+		Arrays.sort(sortKeys);
+
+		Array<Object2d> sorted = new Array<>(objects.size);
+		for (long key : sortKeys)
+			sorted.add(objects.get((int) key));
+
+		return sorted;
+	}
+
+	/** @return new objects, center of their bounds is at given position */
+	public static Array<Object2d> read (byte[] data, float centerX, float centerY, TextureCacheModule cacheModule) {
+		Input input = new Input(data);
+
+		String[] regionPaths = new String[input.readInt(true)];
+		for (int i = 0; i < regionPaths.length; i++)
+			regionPaths[i] = input.readString();
+
+		int count = input.readInt(true);
+		Array<Object2d> objects = new Array<>(count);
+
+		for (int i = 0; i < count; i++) {
+			String path = regionPaths[input.readInt(true)];
+
+			Object2d object = new Object2d();
+			object.regionRelativePath = path;
+			object.setRegion(cacheModule.getRegion(path));
+			object.id = input.readString();
+			object.readPacked(input, centerX, centerY);
+			objects.add(object);
+		}
+
+		return objects;
+	}
+}
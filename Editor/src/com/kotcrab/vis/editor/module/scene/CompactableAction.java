@@ -0,0 +1,28 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+/**
+ * Marks actions that {@link UndoModule} can serialize when they get old, so they don't keep references to scene objects and
+ * their sprites. Implementations must have no-arg constructor and must not reference anything else than {@link EditorScene},
+ * scene objects and plain data, inner classes can't be used because of the reference to outer class instance.
+ */
+public interface CompactableAction extends UndoableAction {
+}
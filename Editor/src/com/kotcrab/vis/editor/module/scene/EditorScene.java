@@ -21,6 +21,7 @@ package com.kotcrab.vis.editor.module.scene;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
 import com.kotcrab.vis.runtime.scene.SceneViewport;
 
@@ -30,16 +31,339 @@ public class EditorScene {
 	public int width;
 	public int height;
 	public SceneViewport viewport;
-	public Array<EditorSceneObject> objects = new Array<EditorSceneObject>();
+	/** Incremented every time scene file is rewritten, {@link SceneJournal} is only applied to scene file with same generation */
+	public long journalGeneration;
+	/** Objects are not stored in objects array but in chunks written after scene data, see {@link SceneChunks} */
+	boolean objectsInChunks;
+
+	/** Scene objects in z-order, only valid after {@link #getObjects()} call, {@link #zIndexTree} holds up to date order */
+	private Array<EditorSceneObject> objects = new Array<EditorSceneObject>();
+
+	private transient ZIndexTree zIndexTree;
+	private transient SpatialIndex spatialIndex;
+	private transient boolean objectsDirty;
+	private transient int lastHandle;
+	private transient Array<Object2d> queryResult;
+
+	/** Incremented on every object change, {@link #orderVersion} only when objects are added, removed or reordered */
+	private transient long version;
+	private transient long orderVersion;
+	private transient Array<SceneChangeListener> changeListeners = new Array<>();
+	private transient Array<EditorSceneObject> changedObjects = new Array<>();
+
+	private transient PendingLoader pendingLoader;
+
+	/** Used by Kryo */
+	private EditorScene () {
+	}
 
 	public EditorScene (FileHandle file, SceneViewport viewport, int width, int height) {
 		this.path = file.path();
 		this.viewport = viewport;
 		this.width = width;
 		this.height = height;
+		rebuildIndexes();
 	}
 
 	public FileHandle getFile () {
 		return Gdx.files.absolute(path);
 	}
+
+	/**
+	 * Rebuilds z-order and spatial indexes from objects array. Must be called after scene was deserialized and objects sprites
+	 * were created.
+	 */
+	public void rebuildIndexes () {
+		if (zIndexTree == null) zIndexTree = new ZIndexTree();
+		if (spatialIndex == null) spatialIndex = new SpatialIndex();
+
+		zIndexTree.clear();
+		spatialIndex.clear();
+
+		for (EditorSceneObject object : objects) {
+			assignHandle(object);
+			zIndexTree.add(object);
+			if (object instanceof Object2d) spatialIndex.update((Object2d) object);
+		}
+
+		objectsDirty = false;
+	}
+
+	/** Sets objects of scene that was read without them, indexes must be rebuilt after this call */
+	void setObjects (Array<EditorSceneObject> objects) {
+		this.objects = objects;
+	}
+
+	/** @return copy of scene without objects, marked as having objects stored in chunks */
+	EditorScene createChunkedHeader () {
+		EditorScene header = new EditorScene();
+		header.path = path;
+		header.width = width;
+		header.height = height;
+		header.viewport = viewport;
+		header.journalGeneration = journalGeneration;
+		header.objectsInChunks = true;
+		return header;
+	}
+
+	/** Sets loader of objects that are still being loaded in background, null when scene is fully loaded */
+	public void setPendingLoader (PendingLoader pendingLoader) {
+		this.pendingLoader = pendingLoader;
+	}
+
+	/** @return false if some objects are still being loaded in background */
+	public boolean isFullyLoaded () {
+		return pendingLoader == null;
+	}
+
+	/**
+	 * Blocks until all objects are loaded. Must be called before any operation that depends on z-indexes of objects or on
+	 * complete list of objects, such as executing undoable action, changing object order or saving.
+	 */
+	public void finishLoading () {
+		if (pendingLoader != null) pendingLoader.finish();
+	}
+
+	/** Stops loading objects in background, scene can't be saved after this call if it wasn't fully loaded */
+	public void cancelLoading () {
+		if (pendingLoader != null) pendingLoader.cancel();
+		pendingLoader = null;
+	}
+
+	/**
+	 * Creates copy of scene that can be serialized on other thread while this scene is being modified. Copy has only data
+	 * that is saved to scene file, its objects don't have sprites.
+	 */
+	public EditorScene createSaveSnapshot () {
+		if (pendingLoader != null) throw new IllegalStateException("Scene is still being loaded, finishLoading() must be called first");
+
+		EditorScene snapshot = new EditorScene();
+		snapshot.path = path;
+		snapshot.width = width;
+		snapshot.height = height;
+		snapshot.viewport = viewport;
+		snapshot.journalGeneration = journalGeneration;
+		snapshot.version = version;
+		snapshot.orderVersion = orderVersion;
+
+		Array<EditorSceneObject> sceneObjects = getObjects();
+		snapshot.objects = new Array<EditorSceneObject>(sceneObjects.size);
+
+		for (EditorSceneObject object : sceneObjects) {
+			if (object instanceof Object2d)
+				snapshot.objects.add(((Object2d) object).createSaveSnapshot());
+			else
+				snapshot.objects.add(object);
+		}
+
+		return snapshot;
+	}
+
+	/** Removes all objects and releases memory used by indexes, handles of new objects won't collide with old ones */
+	public void clearObjects () {
+		objects = new Array<EditorSceneObject>();
+		zIndexTree = new ZIndexTree();
+		spatialIndex = new SpatialIndex();
+		queryResult = null;
+		objectsDirty = false;
+		changedObjects.clear();
+		version++;
+		orderVersion++;
+	}
+
+	/**
+	 * Restores objects removed by {@link #clearObjects()}, objects must have their old handles set. Indexes are rebuilt once and
+	 * change listeners are not notified, versions are incremented once so views bound to empty scene are refreshed.
+	 */
+	void restoreObjects (Array<EditorSceneObject> objects) {
+		setObjects(objects);
+		rebuildIndexes();
+		version++;
+		orderVersion++;
+	}
+
+	/** @return number that is incremented every time scene objects are changed */
+	public long getVersion () {
+		return version;
+	}
+
+	/** @return number that is incremented every time objects are added, removed or reordered */
+	public long getOrderVersion () {
+		return orderVersion;
+	}
+
+	public void addChangeListener (SceneChangeListener listener) {
+		changeListeners.add(listener);
+	}
+
+	public void removeChangeListener (SceneChangeListener listener) {
+		changeListeners.removeValue(listener, true);
+	}
+
+	/**
+	 * Must be called after object was modified. Object gets new version and object will be reported to change listeners.
+	 * Adding, removing and reordering objects and {@link #updateObjectBounds(Object2d)} call this automatically.
+	 * @param changes {@link SceneChangeListener} change flags
+	 */
+	public void markChanged (EditorSceneObject object, int changes) {
+		object.updateVersion();
+		version++;
+
+		if (changeListeners.size > 0 && object.addChanges(changes)) changedObjects.add(object);
+	}
+
+	/** Notifies change listeners about objects changed since last call, called once per frame by scene tab */
+	public void dispatchChanges () {
+		if (changedObjects.size == 0) return;
+
+		for (int i = 0; i < changeListeners.size; i++)
+			changeListeners.get(i).objectsChanged(changedObjects);
+
+		for (int i = 0; i < changedObjects.size; i++)
+			changedObjects.get(i).clearChanges();
+
+		changedObjects.clear();
+	}
+
+	/** @return all scene objects in z-order, returned array must not be modified */
+	public Array<EditorSceneObject> getObjects () {
+		if (objectsDirty) {
+			zIndexTree.toArray(objects);
+			objectsDirty = false;
+		}
+
+		return objects;
+	}
+
+	/** @return object with given z-index in O(log n) time */
+	public EditorSceneObject getObject (int index) {
+		return zIndexTree.get(index);
+	}
+
+	public int getObjectCount () {
+		return zIndexTree.size();
+	}
+
+	public void addObject (EditorSceneObject object) {
+		insertObject(zIndexTree.size(), object);
+	}
+
+	public void insertObject (int index, EditorSceneObject object) {
+		assignHandle(object);
+		zIndexTree.insert(index, object);
+		if (object instanceof Object2d) spatialIndex.update((Object2d) object);
+		objectsDirty = true;
+		orderVersion++;
+		markChanged(object, SceneChangeListener.ADDED);
+	}
+
+	/** @return index that object had before removal or -1 if object wasn't in this scene */
+	public int removeObject (EditorSceneObject object) {
+		int index = zIndexTree.remove(object);
+		if (object instanceof Object2d) spatialIndex.remove((Object2d) object);
+		objectsDirty = true;
+		orderVersion++;
+		markChanged(object, SceneChangeListener.REMOVED);
+		return index;
+	}
+
+	/** Changes object z-index, index is interpreted after object was removed from its current position */
+	public void moveObject (EditorSceneObject object, int index) {
+		zIndexTree.move(object, index);
+		objectsDirty = true;
+		orderVersion++;
+		markChanged(object, SceneChangeListener.Z_INDEX);
+	}
+
+	/** @return object z-index in O(log n) time or -1 if object isn't in this scene */
+	public int indexOf (EditorSceneObject object) {
+		return zIndexTree.indexOf(object);
+	}
+
+	public boolean contains (EditorSceneObject object) {
+		return zIndexTree.contains(object);
+	}
+
+	/** Objects that were removed from scene and added again (for example by undo) keep their old handle */
+	private void assignHandle (EditorSceneObject object) {
+		if (object.getHandle() == 0) object.setHandle(++lastHandle);
+	}
+
+	/** Must be called after object bounds has changed (position, size, scale, rotation or region), marks object as changed */
+	public void updateObjectBounds (Object2d object) {
+		if (zIndexTree.contains(object)) spatialIndex.update(object);
+		markChanged(object, SceneChangeListener.TRANSFORM);
+	}
+
+	/**
+	 * Finds all objects that overlap given area using spatial index, order of results is undefined
+	 * @param result array that objects will be added to, it is not cleared
+	 * @return provided result array
+	 */
+	public Array<Object2d> findObjects (Rectangle area, Array<Object2d> result) {
+		return spatialIndex.query(area, result);
+	}
+
+	/**
+	 * Finds all objects that contain given point using spatial index, order of results is undefined
+	 * @param result array that objects will be added to, it is not cleared
+	 * @return provided result array
+	 */
+	public Array<Object2d> findObjects (float x, float y, Array<Object2d> result) {
+		return spatialIndex.query(x, y, result);
+	}
+
+	/**
+	 * Returns object with smallest surface area that contains point x,y. If few objects have same area, one with lowest z-index
+	 * is returned.
+	 * <p/>
+	 * When selecting objects, and few of them are overlapping, selecting object with smallest
+	 * area gives better results than just selecting first one.
+	 */
+	public Object2d findObjectWithSmallestSurfaceArea (float x, float y) {
+		return findObjectWithSmallestSurfaceArea(x, y, null);
+	}
+
+	/**
+	 * Same as {@link #findObjectWithSmallestSurfaceArea(float, float)} but objects found by spatial index are also checked
+	 * using provided hit test
+	 * @param hitTest may be null, in that case only bounding rectangles are tested
+	 */
+	public Object2d findObjectWithSmallestSurfaceArea (float x, float y, HitTest hitTest) {
+		if (queryResult == null) queryResult = new Array<>();
+		queryResult.clear();
+		spatialIndex.query(x, y, queryResult);
+
+		Object2d matchingObject = null;
+		float lastSurfaceArea = Float.MAX_VALUE;
+
+		for (int i = 0; i < queryResult.size; i++) {
+			Object2d object2d = queryResult.get(i);
+			if (hitTest != null && hitTest.contains(object2d, x, y) == false) continue;
+
+			float currentSurfaceArea = object2d.getWidth() * object2d.getHeight();
+
+			if (matchingObject == null || currentSurfaceArea < lastSurfaceArea
+					|| (currentSurfaceArea == lastSurfaceArea && indexOf(object2d) < indexOf(matchingObject))) {
+				matchingObject = object2d;
+				lastSurfaceArea = currentSurfaceArea;
+			}
+		}
+
+		queryResult.clear();
+		return matchingObject;
+	}
+
+	/** Precise test of object that contains point according to its bounding rectangle */
+	public interface HitTest {
+		boolean contains (Object2d object, float x, float y);
+	}
+
+	/** Loads objects of scene that were not loaded yet, see {@link EditorScene#setPendingLoader(PendingLoader)} */
+	public interface PendingLoader {
+		/** Loads all remaining objects, {@link EditorScene#setPendingLoader(PendingLoader)} must be called with null after that */
+		void finish ();
+
+		void cancel ();
+	}
 }
@@ -20,5 +20,55 @@
 package com.kotcrab.vis.editor.module.scene;
 
 public class EditorSceneObject {
+	/** Last version given to any object, versions are never reused, see {@link #getVersion()} */
+	private static long lastVersion;
+
 	public String id;
+
+	/** Runtime handle assigned by {@link EditorScene}, unique for scene while editor is running, never saved to scene file */
+	private transient int handle;
+
+	private transient long version;
+	private transient int changes;
+
+	public int getHandle () {
+		return handle;
+	}
+
+	void setHandle (int handle) {
+		this.handle = handle;
+	}
+
+	/**
+	 * @return number that changes every time object is changed, see {@link EditorScene#markChanged(EditorSceneObject, int)}.
+	 * Number is never given to any other object, so two objects with same handle and version have same data.
+	 */
+	public long getVersion () {
+		return version;
+	}
+
+	/** Used by save snapshots and objects restored from hibernation, which have same data as object with that version */
+	void setVersion (long version) {
+		this.version = version;
+	}
+
+	/** @return {@link SceneChangeListener} flags of changes made since last notification, valid only while listeners are notified */
+	public int getChanges () {
+		return changes;
+	}
+
+	/** @return true if object wasn't changed since last notification before this call */
+	boolean addChanges (int changes) {
+		boolean first = this.changes == 0;
+		this.changes |= changes;
+		return first;
+	}
+
+	void clearChanges () {
+		changes = 0;
+	}
+
+	void updateVersion () {
+		version = ++lastVersion;
+	}
 }
@@ -20,9 +20,14 @@
 package com.kotcrab.vis.editor.module.scene;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.badlogic.gdx.graphics.glutils.ImmediateModeRenderer20;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Rectangle;
 import com.kotcrab.vis.editor.module.EditorSettingsModule;
 import com.kotcrab.vis.editor.util.FieldUtils;
 import com.kotcrab.vis.ui.VisTable;
@@ -33,73 +38,155 @@ import com.kotcrab.vis.ui.widget.VisTextField.TextFieldFilter.DigitsOnlyFilter;
 import com.kotcrab.vis.ui.widget.VisValidableTextField;
 
 public class GridRendererModule extends SceneModule {
-	private CameraModule camera;
-	private RendererModule renderer;
+	/** Lines closer to each other than this amount of pixels are not drawn, next grid level is used instead */
+	private static final float MIN_LINE_SPACING = 8;
+	/** Every n-th line is major line, major lines of one level are minor lines of the next one */
+	private static final int MAJOR_LINE_EVERY = 4;
+	/** Size of cached area, relative to camera visible area. Panning inside it doesn't require geometry rebuild */
+	private static final float CACHE_AREA_SCALE = 2;
+
+	private static final int VERTEX_SIZE = 4;
 
-	private ShapeRenderer shapeRenderer;
+	private static final float MINOR_LINE_COLOR = new Color(0.32f, 0.32f, 0.32f, 1f).toFloatBits();
+	private static final float MAJOR_LINE_COLOR = new Color(0.42f, 0.42f, 0.42f, 1f).toFloatBits();
+
+	private CameraModule camera;
 
 	private GridSettingsModule settings;
 
+	private ShaderProgram shader;
+	private Mesh mesh;
+	private float[] vertices = new float[0];
+	private int vertexCount;
+
+	private Rectangle cachedArea = new Rectangle();
+	private int cachedStep;
+
+	@Override
+	public void added () {
+		shader = ImmediateModeRenderer20.createDefaultShader(false, true, 0);
+	}
+
 	@Override
 	public void init () {
-		renderer = sceneContainer.get(RendererModule.class);
 		camera = sceneContainer.get(CameraModule.class);
 
 		settings = container.get(GridSettingsModule.class);
-
-		shapeRenderer = renderer.getShapeRenderer();
 	}
 
 	@Override
 	public void render (Batch batch) {
 		if (settings.config.drawGrid) {
-			batch.end();
+			Rectangle visibleArea = camera.getVisibleArea();
+			int step = getGridStep();
 
-			shapeRenderer.setProjectionMatrix(camera.getCombinedMatrix());
-			shapeRenderer.begin(ShapeType.Line);
-			shapeRenderer.setColor(new Color(0.32f, 0.32f, 0.32f, 1f));
+			if (step != cachedStep || contains(cachedArea, visibleArea) == false)
+				rebuildGeometry(visibleArea, step);
 
-			drawVerticalLines();
-			drawHorizontalLines();
+			batch.end();
 
-			shapeRenderer.end();
+			shader.begin();
+			shader.setUniformMatrix("u_projModelView", camera.getCombinedMatrix());
+			mesh.render(shader, GL20.GL_LINES, 0, vertexCount);
+			shader.end();
 
 			batch.begin();
 		}
 	}
 
-	private void drawVerticalLines () {
-		int gridSize = settings.config.gridSize;
-		float xStart = camera.getX() - camera.getWidth() / 2;
-		float xEnd = xStart + camera.getWidth();
+	/** @return distance between minor lines, multiple of grid size chosen so lines are at least {@link #MIN_LINE_SPACING} pixels apart */
+	private int getGridStep () {
+		int step = Math.max(1, settings.config.gridSize);
+		float minSpacing = MIN_LINE_SPACING * camera.getZoom();
+
+		while (step < minSpacing)
+			step *= MAJOR_LINE_EVERY;
+
+		return step;
+	}
+
+	private void rebuildGeometry (Rectangle visibleArea, int step) {
+		float padX = visibleArea.width * (CACHE_AREA_SCALE - 1) / 2;
+		float padY = visibleArea.height * (CACHE_AREA_SCALE - 1) / 2;
+
+		int startX = (int) Math.floor((visibleArea.x - padX) / step);
+		int startY = (int) Math.floor((visibleArea.y - padY) / step);
+		int endX = (int) Math.ceil((visibleArea.x + visibleArea.width + padX) / step);
+		int endY = (int) Math.ceil((visibleArea.y + visibleArea.height + padY) / step);
+
+		float x1 = (float) startX * step, y1 = (float) startY * step;
+		float x2 = (float) endX * step, y2 = (float) endY * step;
+		cachedArea.set(x1, y1, x2 - x1, y2 - y1);
+		cachedStep = step;
+
+		int lines = (endX - startX + 1) + (endY - startY + 1);
+		ensureCapacity(lines * 2);
+
+		vertexCount = 0;
+		for (int i = startX; i <= endX; i++)
+			addLine(i * step, y1, i * step, y2, i);
+
+		for (int i = startY; i <= endY; i++)
+			addLine(x1, i * step, x2, i * step, i);
+
+		mesh.setVertices(vertices, 0, vertexCount * VERTEX_SIZE);
+	}
+
+	private void addLine (float x1, float y1, float x2, float y2, int index) {
+		float color = index % MAJOR_LINE_EVERY == 0 ? MAJOR_LINE_COLOR : MINOR_LINE_COLOR;
+		addVertex(x1, y1, color);
+		addVertex(x2, y2, color);
+	}
+
+	private void addVertex (float x, float y, float color) {
+		int offset = vertexCount * VERTEX_SIZE;
+		vertices[offset] = x;
+		vertices[offset + 1] = y;
+		vertices[offset + 2] = 0;
+		vertices[offset + 3] = color;
+		vertexCount++;
+	}
 
-		int leftDownY = (int) (camera.getY() - camera.getHeight() / 2);
-		int linesToDraw = (int) (camera.getHeight() / gridSize) + 1;
+	private void ensureCapacity (int requiredVertices) {
+		if (mesh != null && mesh.getMaxVertices() >= requiredVertices) return;
 
-		int drawingPointStart = leftDownY / gridSize;
-		int drawingPointEnd = drawingPointStart + linesToDraw;
+		int maxVertices = Math.max(requiredVertices, mesh == null ? 0 : mesh.getMaxVertices() * 2);
+		if (mesh != null) mesh.dispose();
 
-		for (int i = drawingPointStart; i < drawingPointEnd; i++)
-			shapeRenderer.line(xStart, i * gridSize, xEnd, i * gridSize);
+		mesh = new Mesh(false, maxVertices, 0, new VertexAttribute(Usage.Position, 3, ShaderProgram.POSITION_ATTRIBUTE),
+				new VertexAttribute(Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE));
+		vertices = new float[maxVertices * VERTEX_SIZE];
 	}
 
-	private void drawHorizontalLines () {
-		int gridSize = settings.config.gridSize;
-		float yStart = camera.getY() - camera.getHeight() / 2;
-		float yEnd = yStart + camera.getHeight();
+	private boolean contains (Rectangle outer, Rectangle inner) {
+		return inner.x >= outer.x && inner.y >= outer.y
+				&& inner.x + inner.width <= outer.x + outer.width && inner.y + inner.height <= outer.y + outer.height;
+	}
 
-		int leftDownX = (int) (camera.getX() - camera.getWidth() / 2);
-		int linesToDraw = (int) (camera.getWidth() / gridSize) + 1;
+	@Override
+	public void hibernate () {
+		dispose();
+		shader = null;
+		mesh = null;
+		vertices = new float[0];
+		cachedStep = 0;
+	}
 
-		int drawingPointStart = leftDownX / gridSize;
-		int drawingPointEnd = drawingPointStart + linesToDraw;
+	@Override
+	public void wakeUp () {
+		shader = ImmediateModeRenderer20.createDefaultShader(false, true, 0);
+	}
 
-		for (int i = drawingPointStart; i < drawingPointEnd; i++)
-			shapeRenderer.line(i * gridSize, yStart, i * gridSize, yEnd);
+	@Override
+	public void dispose () {
+		if (shader != null) shader.dispose();
+		if (mesh != null) mesh.dispose();
 	}
 
 	public static class GridSettingsModule extends EditorSettingsModule<GridConfig> {
 		private VisCheckBox drawGridCheck;
+		private VisCheckBox snapToGridCheck;
+		private VisCheckBox snapToObjectsCheck;
 		private VisValidableTextField gridSizeField;
 
 		public GridSettingsModule () {
@@ -121,7 +208,13 @@ public class GridRendererModule extends SceneModule {
 			prepareTable();
 			settingsTable.add(drawGridCheck = new VisCheckBox("Draw grid", config.drawGrid)).left();
 			settingsTable.row();
-			settingsTable.add(sizeTable);
+			settingsTable.add(sizeTable).left();
+			settingsTable.row();
+			settingsTable.add(snapToGridCheck = new VisCheckBox("Snap to grid", config.snapToGrid)).left();
+			settingsTable.row();
+			settingsTable.add(snapToObjectsCheck = new VisCheckBox("Snap to edges of nearby objects", config.snapToObjects)).left();
+			settingsTable.row();
+			settingsTable.add(new VisLabel("Hold Alt while dragging to move objects without snapping")).left();
 
 			gridSizeField.setTextFieldFilter(new DigitsOnlyFilter());
 			gridSizeField.addValidator(new Validators.GreaterThanValidator(0));
@@ -131,12 +224,16 @@ public class GridRendererModule extends SceneModule {
 		@Override
 		public void loadConfigToTable () {
 			drawGridCheck.setChecked(config.drawGrid);
+			snapToGridCheck.setChecked(config.snapToGrid);
+			snapToObjectsCheck.setChecked(config.snapToObjects);
 			gridSizeField.setText(String.valueOf(config.gridSize));
 		}
 
 		@Override
 		public void settingsApply () {
 			config.drawGrid = drawGridCheck.isChecked();
+			config.snapToGrid = snapToGridCheck.isChecked();
+			config.snapToObjects = snapToObjectsCheck.isChecked();
 			config.gridSize = FieldUtils.getInt(gridSizeField, 0);
 			settingsSave();
 		}
@@ -145,5 +242,7 @@ public class GridRendererModule extends SceneModule {
 	public static class GridConfig {
 		public boolean drawGrid = true;
 		public int gridSize = 256;
+		public boolean snapToGrid = true;
+		public boolean snapToObjects = true;
 	}
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.Timer;
+import com.badlogic.gdx.utils.Timer.Task;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.kotcrab.vis.editor.module.GeneralSettingsModule;
+import com.kotcrab.vis.editor.module.project.SceneIOModule;
+import com.kotcrab.vis.editor.module.scene.EditorScene.PendingLoader;
+import com.kotcrab.vis.editor.util.Log;
+import com.kotcrab.vis.runtime.data.SpriteData;
+
+/**
+ * Releases memory used by scene tab when it was hidden for time configured in general settings. Scene objects are replaced
+ * by compact serialized snapshot and modules release their resources, when tab is shown again snapshot is deserialized in
+ * background and modules are woken up.
+ */
+public class HibernationModule extends SceneModule {
+	private static final String TAG = "HibernationModule";
+
+	private SceneIOModule sceneIO;
+	private GeneralSettingsModule settings;
+
+	/** Used by GL thread for writing and by rehydration thread for reading, never at the same time */
+	private Kryo kryo;
+
+	private Task hibernateTask = new Task() {
+		@Override
+		public void run () {
+			hibernateScene();
+		}
+	};
+
+	/** Set as scene pending loader while scene is hibernated, so undo, redo, object drop or save wake up scene first */
+	private PendingLoader snapshotLoader = new PendingLoader() {
+		@Override
+		public void finish () {
+			wakeUpNow();
+		}
+
+		@Override
+		public void cancel () {
+		}
+	};
+
+	private byte[] snapshot;
+	private Thread rehydrationThread;
+	private volatile Array<EditorSceneObject> restoredObjects;
+	private volatile IntArray restoredHandles;
+	private volatile LongArray restoredVersions;
+	private boolean disposed;
+
+	@Override
+	public void init () {
+		sceneIO = projectContainer.get(SceneIOModule.class);
+		settings = container.get(GeneralSettingsModule.class);
+
+		kryo = sceneIO.createKryo();
+		kryo.setDefaultSerializer(FieldSerializer.class);
+		kryo.register(SpriteData.class, new FieldSerializer<SpriteData>(kryo, SpriteData.class));
+		kryo.register(Object2d.class);
+	}
+
+	@Override
+	public void onHide () {
+		//task may be still pending when tab is hidden again after rehydration
+		hibernateTask.cancel();
+
+		float delay = settings.getSceneHibernationDelay();
+		if (delay > 0) Timer.schedule(hibernateTask, delay);
+	}
+
+	@Override
+	public void onShow () {
+		hibernateTask.cancel();
+		if (snapshot != null && rehydrationThread == null) rehydrate();
+	}
+
+	private void hibernateScene () {
+		if (disposed || sceneTab.isActiveTab() || sceneContainer.isHibernated()) return;
+
+		scene.finishLoading();
+
+		sceneContainer.hibernate();
+
+		Array<EditorSceneObject> objects = scene.getObjects();
+		Output output = new Output(4096, -1);
+		output.writeInt(objects.size, true);
+
+		for (EditorSceneObject object : objects) {
+			output.writeInt(object.getHandle(), true);
+			output.writeLong(object.getVersion(), true);
+			kryo.writeClassAndObject(output, object);
+		}
+
+		snapshot = output.toBytes();
+		scene.clearObjects();
+		scene.setPendingLoader(snapshotLoader);
+
+		Log.debug(TAG, "Hibernated scene: " + scene.path + ", snapshot size: " + snapshot.length / 1024 + " KB");
+	}
+
+	/** Deserializes snapshot in background, scene is restored on GL thread when it's done */
+	private void rehydrate () {
+		rehydrationThread = new Thread(new Runnable() {
+			@Override
+			public void run () {
+				readSnapshot();
+
+				Gdx.app.postRunnable(new Runnable() {
+					@Override
+					public void run () {
+						finishRehydration();
+					}
+				});
+			}
+		}, "SceneRehydration");
+
+		rehydrationThread.start();
+	}
+
+	/** Immediately restores hibernated scene, for example when scene must be saved. Does nothing if scene isn't hibernated */
+	public void wakeUpNow () {
+		if (snapshot == null) return;
+
+		if (rehydrationThread != null) {
+			try {
+				rehydrationThread.join();
+			} catch (InterruptedException e) {
+				Log.exception(e);
+			}
+		} else
+			readSnapshot();
+
+		finishRehydration();
+	}
+
+	private void readSnapshot () {
+		Input input = new Input(snapshot);
+		int size = input.readInt(true);
+
+		Array<EditorSceneObject> objects = new Array<>(size);
+		IntArray handles = new IntArray(size);
+		LongArray versions = new LongArray(size);
+
+		for (int i = 0; i < size; i++) {
+			handles.add(input.readInt(true));
+			versions.add(input.readLong(true));
+			objects.add((EditorSceneObject) kryo.readClassAndObject(input));
+		}
+
+		restoredHandles = handles;
+		restoredVersions = versions;
+		restoredObjects = objects;
+	}
+
+	private void finishRehydration () {
+		//scene could have been already restored by wakeUpNow
+		if (disposed || snapshot == null) return;
+
+		Array<EditorSceneObject> objects = restoredObjects;
+		IntArray handles = restoredHandles;
+		LongArray versions = restoredVersions;
+
+		scene.setPendingLoader(null);
+
+		for (int i = 0; i < objects.size; i++) {
+			EditorSceneObject object = objects.get(i);
+			object.setHandle(handles.get(i));
+			sceneIO.prepareObjectAfterLoad(object);
+			//object data didn't change, keeping version allows scene journal to skip it
+			object.setVersion(versions.get(i));
+		}
+
+		scene.restoreObjects(objects);
+
+		snapshot = null;
+		restoredObjects = null;
+		restoredHandles = null;
+		restoredVersions = null;
+		rehydrationThread = null;
+
+		sceneContainer.wakeUp();
+
+		if (sceneTab.isActiveTab() == false && hibernateTask.isScheduled() == false) onHide();
+	}
+
+	@Override
+	public void dispose () {
+		disposed = true;
+		hibernateTask.cancel();
+	}
+}
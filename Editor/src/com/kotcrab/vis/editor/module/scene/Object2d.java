@@ -19,34 +19,460 @@
 
 package com.kotcrab.vis.editor.module.scene;
 
-import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.NumberUtils;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.kotcrab.vis.editor.util.AlphaMask;
 import com.kotcrab.vis.runtime.data.SpriteData;
 
+/**
+ * Textured scene object. Transform is stored directly in object fields, texture region is shared with other objects using
+ * same texture and vertices are generated only when object is drawn.
+ */
 public class Object2d extends EditorSceneObject {
+	private static final int PACKED_FLIP_X = 1;
+	private static final int PACKED_FLIP_Y = 1 << 1;
+	private static final int PACKED_ROTATION = 1 << 2;
+	private static final int PACKED_SCALE = 1 << 3;
+	private static final int PACKED_ORIGIN = 1 << 4;
+	private static final int PACKED_TINT = 1 << 5;
+
+	/** Shared by all objects, only used while object is being drawn on GL thread */
+	private static final float[] vertices = new float[20];
+
 	public String regionRelativePath;
-	public transient Sprite sprite;
+	private transient TextureRegion region;
+
+	private float x, y;
+	private float width, height;
+	private float originX, originY;
+	private float rotation;
+	private float scaleX = 1, scaleY = 1;
+	private boolean flipX, flipY;
+	/** Tint in RGBA8888 format */
+	private int tint = 0xffffffff;
 
+	/** Only set for objects read from scene files saved by older versions, see {@link #loadLegacyData()} */
 	private SpriteData data;
 
+	/** Used by Kryo and {@link SceneJournal} */
+	Object2d () {
+	}
+
 	public Object2d (String regionRelativePath, TextureRegion region, float x, float y) {
-		this.sprite = new Sprite(region);
 		this.regionRelativePath = regionRelativePath;
-		data = new SpriteData();
-		sprite.setPosition(x, y);
+		this.region = region;
+		this.x = x;
+		this.y = y;
+		width = Math.abs(region.getRegionWidth());
+		height = Math.abs(region.getRegionHeight());
+		originX = width / 2;
+		originY = height / 2;
+	}
+
+	/** Copies values from sprite data that older scene files had instead of object fields */
+	void loadLegacyData () {
+		if (data == null) return;
+
+		loadFrom(data);
+		data = null;
+	}
+
+	private void loadFrom (SpriteData data) {
+		x = data.x;
+		y = data.y;
+		width = data.width;
+		height = data.height;
+		originX = data.originX;
+		originY = data.originY;
+		rotation = data.rotation;
+		scaleX = data.scaleX;
+		scaleY = data.scaleY;
+		tint = Color.rgba8888(data.tint);
+		flipX = data.flipX;
+		flipY = data.flipY;
+	}
+
+	/** Copies object values to sprite data used by runtime */
+	public void saveTo (SpriteData data) {
+		data.x = x;
+		data.y = y;
+		data.width = width;
+		data.height = height;
+		data.originX = originX;
+		data.originY = originY;
+		data.rotation = rotation;
+		data.scaleX = scaleX;
+		data.scaleY = scaleY;
+		data.tint = getColor();
+		data.flipX = flipX;
+		data.flipY = flipY;
+	}
+
+	/** @return copy of this object without region, with same handle and version, that won't change when this object is modified */
+	Object2d createSaveSnapshot () {
+		Object2d snapshot = new Object2d();
+		snapshot.setHandle(getHandle());
+		snapshot.setVersion(getVersion());
+		snapshot.id = id;
+		snapshot.regionRelativePath = regionRelativePath;
+		snapshot.x = x;
+		snapshot.y = y;
+		snapshot.width = width;
+		snapshot.height = height;
+		snapshot.originX = originX;
+		snapshot.originY = originY;
+		snapshot.rotation = rotation;
+		snapshot.scaleX = scaleX;
+		snapshot.scaleY = scaleY;
+		snapshot.tint = tint;
+		snapshot.flipX = flipX;
+		snapshot.flipY = flipY;
+		return snapshot;
+	}
+
+	/** Writes id, region and object values in compact form used by scene journal and scene chunks */
+	void writeData (Output output) {
+		output.writeString(id);
+		output.writeString(regionRelativePath);
+		output.writeFloat(x);
+		output.writeFloat(y);
+		output.writeFloat(width);
+		output.writeFloat(height);
+		output.writeFloat(originX);
+		output.writeFloat(originY);
+		output.writeFloat(rotation);
+		output.writeFloat(scaleX);
+		output.writeFloat(scaleY);
+		output.writeInt(tint);
+		output.writeBoolean(flipX);
+		output.writeBoolean(flipY);
+	}
+
+	/** Reads data written by {@link #writeData(Output)}, region isn't updated */
+	void readData (Input input) {
+		id = input.readString();
+		regionRelativePath = input.readString();
+		x = input.readFloat();
+		y = input.readFloat();
+		width = input.readFloat();
+		height = input.readFloat();
+		originX = input.readFloat();
+		originY = input.readFloat();
+		rotation = input.readFloat();
+		scaleX = input.readFloat();
+		scaleY = input.readFloat();
+		tint = input.readInt();
+		flipX = input.readBoolean();
+		flipY = input.readBoolean();
+	}
+
+	/**
+	 * Writes object values in packed form used by clipboard, values that are equal to defaults are skipped. Id and region are
+	 * not written.
+	 */
+	void writePacked (Output output, float offsetX, float offsetY) {
+		int flags = 0;
+		if (flipX) flags |= PACKED_FLIP_X;
+		if (flipY) flags |= PACKED_FLIP_Y;
+		if (rotation != 0) flags |= PACKED_ROTATION;
+		if (scaleX != 1 || scaleY != 1) flags |= PACKED_SCALE;
+		if (originX != width / 2 || originY != height / 2) flags |= PACKED_ORIGIN;
+		if (tint != 0xffffffff) flags |= PACKED_TINT;
+
+		output.writeByte(flags);
+		output.writeFloat(x + offsetX);
+		output.writeFloat(y + offsetY);
+		output.writeFloat(width);
+		output.writeFloat(height);
+
+		if ((flags & PACKED_ROTATION) != 0) output.writeFloat(rotation);
+
+		if ((flags & PACKED_SCALE) != 0) {
+			output.writeFloat(scaleX);
+			output.writeFloat(scaleY);
+		}
+
+		if ((flags & PACKED_ORIGIN) != 0) {
+			output.writeFloat(originX);
+			output.writeFloat(originY);
+		}
+
+		if ((flags & PACKED_TINT) != 0) output.writeInt(tint);
+	}
+
+	/** Reads data written by {@link #writePacked(Output, float, float)}, offset is added to object position */
+	void readPacked (Input input, float offsetX, float offsetY) {
+		int flags = input.readByte();
+		flipX = (flags & PACKED_FLIP_X) != 0;
+		flipY = (flags & PACKED_FLIP_Y) != 0;
+		x = input.readFloat() + offsetX;
+		y = input.readFloat() + offsetY;
+		width = input.readFloat();
+		height = input.readFloat();
+		rotation = (flags & PACKED_ROTATION) != 0 ? input.readFloat() : 0;
+
+		if ((flags & PACKED_SCALE) != 0) {
+			scaleX = input.readFloat();
+			scaleY = input.readFloat();
+		} else
+			scaleX = scaleY = 1;
+
+		if ((flags & PACKED_ORIGIN) != 0) {
+			originX = input.readFloat();
+			originY = input.readFloat();
+		} else {
+			originX = width / 2;
+			originY = height / 2;
+		}
+
+		tint = (flags & PACKED_TINT) != 0 ? input.readInt() : 0xffffffff;
+	}
+
+	public TextureRegion getRegion () {
+		return region;
+	}
+
+	/** Changes texture region, object size is not changed */
+	public void setRegion (TextureRegion region) {
+		this.region = region;
+	}
+
+	public float getX () {
+		return x;
+	}
+
+	public float getY () {
+		return y;
+	}
+
+	public void setPosition (float x, float y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	public void translate (float deltaX, float deltaY) {
+		x += deltaX;
+		y += deltaY;
+	}
+
+	public float getWidth () {
+		return width;
+	}
+
+	public float getHeight () {
+		return height;
+	}
+
+	public float getOriginX () {
+		return originX;
 	}
 
-	public void saveSpriteDataValuesToData () {
-		data.saveFrom(sprite);
+	public float getOriginY () {
+		return originY;
 	}
 
-	public void loadSpriteValuesFromData () {
-		data.loadTo(sprite);
+	public void setOrigin (float originX, float originY) {
+		this.originX = originX;
+		this.originY = originY;
+	}
+
+	public float getRotation () {
+		return rotation;
+	}
+
+	public void setRotation (float rotation) {
+		this.rotation = rotation;
+	}
+
+	public float getScaleX () {
+		return scaleX;
+	}
+
+	public float getScaleY () {
+		return scaleY;
+	}
+
+	public void setScale (float scaleX, float scaleY) {
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+	}
+
+	public boolean isFlipX () {
+		return flipX;
+	}
+
+	public boolean isFlipY () {
+		return flipY;
+	}
+
+	public void setFlip (boolean flipX, boolean flipY) {
+		this.flipX = flipX;
+		this.flipY = flipY;
+	}
+
+	/** @return tint in RGBA8888 format */
+	public int getTint () {
+		return tint;
+	}
+
+	/** @param tint tint in RGBA8888 format */
+	public void setTint (int tint) {
+		this.tint = tint;
+	}
+
+	/** @return new color instance with object tint */
+	public Color getColor () {
+		Color color = new Color();
+		Color.rgba8888ToColor(color, tint);
+		return color;
+	}
+
+	public void setColor (Color color) {
+		tint = Color.rgba8888(color);
+	}
+
+	/** Calculates bounding rectangle of transformed object, object doesn't need to have region */
+	public Rectangle getBoundingRectangle (Rectangle bounds) {
+		float worldOriginX = x + originX;
+		float worldOriginY = y + originY;
+		float x1 = -originX * scaleX;
+		float y1 = -originY * scaleY;
+		float x2 = (width - originX) * scaleX;
+		float y2 = (height - originY) * scaleY;
+
+		if (rotation == 0) {
+			float minX = Math.min(x1, x2), minY = Math.min(y1, y2);
+			return bounds.set(worldOriginX + minX, worldOriginY + minY, Math.abs(x2 - x1), Math.abs(y2 - y1));
+		}
+
+		float cos = MathUtils.cosDeg(rotation);
+		float sin = MathUtils.sinDeg(rotation);
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+
+		for (int i = 0; i < 4; i++) {
+			float localX = i % 3 == 0 ? x1 : x2;
+			float localY = i < 2 ? y1 : y2;
+			float x = localX * cos - localY * sin;
+			float y = localX * sin + localY * cos;
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+
+		return bounds.set(worldOriginX + minX, worldOriginY + minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * Tests if point is inside of transformed object rectangle, unlike bounding rectangle test this is exact for rotated objects
+	 * @param mask alpha mask of object region, if not null point must be also on opaque pixel of region
+	 */
+	public boolean contains (float x, float y, AlphaMask mask) {
+		if (scaleX == 0 || scaleY == 0) return false;
+
+		float localX = x - (this.x + originX);
+		float localY = y - (this.y + originY);
+
+		if (rotation != 0) {
+			float cos = MathUtils.cosDeg(rotation);
+			float sin = MathUtils.sinDeg(rotation);
+			float rotatedX = localX * cos + localY * sin;
+			localY = localY * cos - localX * sin;
+			localX = rotatedX;
+		}
+
+		localX = localX / scaleX + originX;
+		localY = localY / scaleY + originY;
+
+		if (localX < 0 || localY < 0 || localX >= width || localY >= height) return false;
+		if (mask == null) return true;
+
+		float u = localX / width;
+		float v = 1 - localY / height;
+		return mask.isOpaque(flipX ? 1 - u : u, flipY ? 1 - v : v);
+	}
+
+	/** Draws object the same way as {@link com.badlogic.gdx.graphics.g2d.Sprite} with the same values would be drawn */
+	public void draw (Batch batch) {
+		float localX = -originX;
+		float localY = -originY;
+		float localX2 = localX + width;
+		float localY2 = localY + height;
+		float worldOriginX = x - localX;
+		float worldOriginY = y - localY;
+
+		if (scaleX != 1 || scaleY != 1) {
+			localX *= scaleX;
+			localY *= scaleY;
+			localX2 *= scaleX;
+			localY2 *= scaleY;
+		}
+
+		float x1, y1, x2, y2, x3, y3, x4, y4;
+
+		if (rotation != 0) {
+			float cos = MathUtils.cosDeg(rotation);
+			float sin = MathUtils.sinDeg(rotation);
+
+			x1 = localX * cos - localY * sin + worldOriginX;
+			y1 = localY * cos + localX * sin + worldOriginY;
+			x2 = localX * cos - localY2 * sin + worldOriginX;
+			y2 = localY2 * cos + localX * sin + worldOriginY;
+			x3 = localX2 * cos - localY2 * sin + worldOriginX;
+			y3 = localY2 * cos + localX2 * sin + worldOriginY;
+			x4 = x1 + (x3 - x2);
+			y4 = y3 - (y2 - y1);
+		} else {
+			x1 = localX + worldOriginX;
+			y1 = localY + worldOriginY;
+			x2 = x1;
+			y2 = localY2 + worldOriginY;
+			x3 = localX2 + worldOriginX;
+			y3 = y2;
+			x4 = x3;
+			y4 = y1;
+		}
+
+		float u = flipX ? region.getU2() : region.getU();
+		float u2 = flipX ? region.getU() : region.getU2();
+		float v = flipY ? region.getV2() : region.getV();
+		float v2 = flipY ? region.getV() : region.getV2();
+		float color = NumberUtils.intToFloatColor(toABGR(tint));
+
+		vertices[0] = x1;
+		vertices[1] = y1;
+		vertices[2] = color;
+		vertices[3] = u;
+		vertices[4] = v2;
+
+		vertices[5] = x2;
+		vertices[6] = y2;
+		vertices[7] = color;
+		vertices[8] = u;
+		vertices[9] = v;
+
+		vertices[10] = x3;
+		vertices[11] = y3;
+		vertices[12] = color;
+		vertices[13] = u2;
+		vertices[14] = v;
+
+		vertices[15] = x4;
+		vertices[16] = y4;
+		vertices[17] = color;
+		vertices[18] = u2;
+		vertices[19] = v2;
+
+		batch.draw(region.getTexture(), vertices, 0, 20);
 	}
 
-	public void updateSpriteRegion (TextureRegion newRegion) {
-		saveSpriteDataValuesToData();
-		sprite.setRegion(newRegion);
-		loadSpriteValuesFromData();
+	private static int toABGR (int rgba) {
+		return rgba >>> 24 | (rgba >>> 8) & 0xff00 | (rgba << 8) & 0xff0000 | rgba << 24;
 	}
 }
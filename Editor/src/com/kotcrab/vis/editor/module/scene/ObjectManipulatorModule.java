@@ -22,80 +22,143 @@ package com.kotcrab.vis.editor.module.scene;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Buttons;
 import com.badlogic.gdx.Input.Keys;
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.kotcrab.vis.editor.App;
+import com.kotcrab.vis.editor.event.StatusBarEvent;
 import com.kotcrab.vis.editor.module.ColorPickerModule;
+import com.kotcrab.vis.editor.module.GeneralSettingsModule;
+import com.kotcrab.vis.editor.module.project.ClipboardModule;
+import com.kotcrab.vis.editor.module.project.TextureCacheModule;
+import com.kotcrab.vis.editor.module.scene.EditorScene.HitTest;
+import com.kotcrab.vis.editor.module.scene.GridRendererModule.GridConfig;
+import com.kotcrab.vis.editor.module.scene.GridRendererModule.GridSettingsModule;
 import com.kotcrab.vis.editor.ui.scene.ObjectProperties;
+import com.kotcrab.vis.editor.ui.scene.SceneOutline;
+
+import java.util.EnumSet;
 
 public class ObjectManipulatorModule extends SceneModule {
+	/** Max distance to snap target in screen pixels */
+	private static final float SNAP_DISTANCE = 8;
+	/** Distance in screen pixels between duplicated objects and originals */
+	private static final float DUPLICATE_OFFSET = 16;
+
 	private CameraModule camera;
 	private UndoModule undoModule;
+	private GeneralSettingsModule settings;
+	private GridSettingsModule gridSettings;
+	private TextureCacheModule cacheModule;
+	private ClipboardModule clipboard;
 
-	private ShapeRenderer shapeRenderer;
+	private SelectionRenderer selectionRenderer;
 
 	private ObjectProperties objectProperties;
+	private SceneOutline sceneOutline;
 
-	private Array<EditorSceneObject> objects;
 	private Array<Object2d> selectedObjects = new Array<>();
+	private Rectangle objectBounds = new Rectangle();
+
+	private SnapEngine snapEngine;
+	private Vector2 snappedOffset = new Vector2();
 
-	private float lastTouchX;
-	private float lastTouchY;
+	private float dragStartX;
+	private float dragStartY;
+	/** Offset from drag start that was already applied to selected objects */
+	private float appliedOffsetX;
+	private float appliedOffsetY;
 
 	private boolean selected;
 	private boolean dragging;
 	private boolean dragged;
 
+	private TransformAction dragAction;
+
+	private HitTest pixelHitTest = new HitTest() {
+		@Override
+		public boolean contains (Object2d object, float x, float y) {
+			return object.contains(x, y, cacheModule.getAlphaMask(object.regionRelativePath));
+		}
+	};
+
 	@Override
 	public void added () {
-		this.objects = scene.objects;
-
-		shapeRenderer = sceneContainer.get(RendererModule.class).getShapeRenderer();
 		camera = sceneContainer.get(CameraModule.class);
 		undoModule = sceneContainer.get(UndoModule.class);
+		settings = container.get(GeneralSettingsModule.class);
+		gridSettings = container.get(GridSettingsModule.class);
+		cacheModule = projectContainer.get(TextureCacheModule.class);
+		clipboard = projectContainer.get(ClipboardModule.class);
 
 		ColorPickerModule pickerModule = container.get(ColorPickerModule.class);
-		objectProperties = new ObjectProperties(pickerModule.getPicker(), sceneTab);
+		objectProperties = new ObjectProperties(pickerModule.getPicker(), sceneTab, undoModule);
+		objectProperties.setValuesToFields(selectedObjects);
+		scene.addChangeListener(objectProperties);
+
+		sceneOutline = new SceneOutline(scene, this);
+		scene.addChangeListener(sceneOutline);
+
+		snapEngine = new SnapEngine(scene);
+		selectionRenderer = new SelectionRenderer(scene);
 	}
 
 	@Override
 	public void render (Batch batch) {
 		if (selectedObjects.size > 0) {
 			batch.end();
-
-			shapeRenderer.setProjectionMatrix(camera.getCombinedMatrix());
-			shapeRenderer.setColor(Color.WHITE);
-			shapeRenderer.begin(ShapeType.Line);
-
-			for (Object2d object : selectedObjects) {
-				Rectangle bounds = object.sprite.getBoundingRectangle();
-				shapeRenderer.rect(bounds.x, bounds.y, bounds.width, bounds.height);
-			}
-
-			shapeRenderer.end();
-
+			selectionRenderer.render(selectedObjects, camera.getCombinedMatrix(), camera.getVisibleArea(), settings.getSelectionOutlineLimit());
 			batch.begin();
 		}
 	}
 
+	@Override
+	public void hibernate () {
+		clearSelection();
+		snapEngine.end();
+		dragAction = null;
+		dragging = false;
+		selectionRenderer.dispose();
+	}
+
+	@Override
+	public void dispose () {
+		selectionRenderer.dispose();
+		scene.removeChangeListener(objectProperties);
+		scene.removeChangeListener(sceneOutline);
+	}
+
 	public ObjectProperties getObjectProperties () {
 		return objectProperties;
 	}
 
+	public SceneOutline getSceneOutline () {
+		return sceneOutline;
+	}
+
 	private boolean isMouseInsideSelectedObjects (float x, float y) {
 		for (Object2d object : selectedObjects)
-			if (object.sprite.getBoundingRectangle().contains(x, y)) {
-				Object2d result = findObjectWithSmallestSurfaceArea(x, y);
+			if (object.getBoundingRectangle(objectBounds).contains(x, y)) {
+				Object2d result = findObject(x, y);
 				if (result == object) return true;
 			}
 
 		return false;
 	}
 
+	/** Finds object under point, when pixel-accurate selection is enabled transparent pixels of objects are ignored */
+	private Object2d findObject (float x, float y) {
+		return scene.findObjectWithSmallestSurfaceArea(x, y, settings.isPixelAccurateSelection() ? pixelHitTest : null);
+	}
+
+	@Override
+	public EnumSet<SceneInputEvent> getHandledInputEvents () {
+		return EnumSet.of(SceneInputEvent.TOUCH_DOWN, SceneInputEvent.TOUCH_UP, SceneInputEvent.TOUCH_DRAGGED, SceneInputEvent.KEY_DOWN);
+	}
+
 	@Override
 	public boolean touchDown (InputEvent event, float x, float y, int pointer, int button) {
 		x = camera.getInputX();
@@ -103,18 +166,15 @@ public class ObjectManipulatorModule extends SceneModule {
 
 		if (button == Buttons.LEFT) {
 			dragging = true;
-			lastTouchX = x;
-			lastTouchY = y;
+			dragStartX = x;
+			dragStartY = y;
 
 			if (isMouseInsideSelectedObjects(x, y) == false) {
 				//multiple select made easy
-				if (Gdx.input.isKeyPressed(Keys.CONTROL_LEFT) == false) selectedObjects.clear();
+				if (Gdx.input.isKeyPressed(Keys.CONTROL_LEFT) == false) clearSelection();
 
-				Object2d result = findObjectWithSmallestSurfaceArea(x, y);
-				if (result != null && selectedObjects.contains(result, true) == false)
-					selectedObjects.add(result);
-
-				objectProperties.setValuesToFields(selectedObjects);
+				Object2d result = findObject(x, y);
+				if (result != null && selectedObjects.contains(result, true) == false) addToSelection(result);
 
 				selected = true;
 				return true;
@@ -129,15 +189,21 @@ public class ObjectManipulatorModule extends SceneModule {
 		y = camera.getInputY();
 
 		if (dragged == false && selected == false) {
-			Object2d result = findObjectWithSmallestSurfaceArea(x, y);
-			if (result != null)
-				selectedObjects.removeValue(result, true);
+			Object2d result = findObject(x, y);
+			if (result != null) removeFromSelection(result);
+		}
 
-			objectProperties.setValuesToFields(selectedObjects);
+		if (dragAction != null) {
+			if (dragAction.finish()) undoModule.add(dragAction);
+			dragAction = null;
 		}
 
-		lastTouchX = 0;
-		lastTouchY = 0;
+		if (dragged) snapEngine.end();
+
+		dragStartX = 0;
+		dragStartY = 0;
+		appliedOffsetX = 0;
+		appliedOffsetY = 0;
 		selected = false;
 		dragging = false;
 		dragged = false;
@@ -149,62 +215,119 @@ public class ObjectManipulatorModule extends SceneModule {
 		y = camera.getInputY();
 
 		if (dragging && selectedObjects.size > 0) {
+			if (dragged == false) {
+				dragAction = new TransformAction(scene, selectedObjects, false);
+				snapEngine.begin(selectedObjects);
+			}
+
 			dragged = true;
-			float deltaX = (x - lastTouchX);
-			float deltaY = (y - lastTouchY);
+			Vector2 offset = snap(x - dragStartX, y - dragStartY);
+			float deltaX = offset.x - appliedOffsetX;
+			float deltaY = offset.y - appliedOffsetY;
+			if (deltaX == 0 && deltaY == 0) return;
 
-			for (Object2d object : selectedObjects)
-				object.sprite.translate(deltaX, deltaY);
+			for (Object2d object : selectedObjects) {
+				object.translate(deltaX, deltaY);
+				scene.updateObjectBounds(object);
+			}
 
-			lastTouchX = x;
-			lastTouchY = y;
+			appliedOffsetX = offset.x;
+			appliedOffsetY = offset.y;
 
 			sceneTab.setDirty(true);
-			objectProperties.updateValues();
 		}
 	}
 
+	/** @return offset of dragged selection after snapping, snapping is skipped while Alt is pressed */
+	private Vector2 snap (float offsetX, float offsetY) {
+		GridConfig config = gridSettings.config;
+		int gridSize = config.snapToGrid ? config.gridSize : 0;
+
+		if (Gdx.input.isKeyPressed(Keys.ALT_LEFT) || (gridSize == 0 && config.snapToObjects == false))
+			return snappedOffset.set(offsetX, offsetY);
+
+		return snapEngine.snap(offsetX, offsetY, SNAP_DISTANCE * camera.getZoom(), gridSize, config.snapToObjects, snappedOffset);
+	}
+
 	@Override
 	public boolean keyDown (InputEvent event, int keycode) {
 		if (keycode == Keys.FORWARD_DEL) { //Delete
-			undoModule.execute(new ObjectsRemoved(selectedObjects));
-			selectedObjects.clear();
-			objectProperties.setValuesToFields(selectedObjects);
+			undoModule.execute(new ObjectsRemoved(scene, selectedObjects));
+			clearSelection();
 
 			return true;
 		}
 
+		if (Gdx.input.isKeyPressed(Keys.CONTROL_LEFT)) {
+			if (keycode == Keys.C) return copy();
+			if (keycode == Keys.X) return cut();
+			if (keycode == Keys.V) return paste();
+			if (keycode == Keys.D) return duplicate();
+		}
+
 		return false;
 	}
 
-	/**
-	 * Returns object with smallest surface area that contains point x,y.
-	 * <p/>
-	 * When selecting objects, and few of them are overlapping, selecting object with smallest
-	 * area gives better results than just selecting first one.
-	 */
-	private Object2d findObjectWithSmallestSurfaceArea (float x, float y) {
-		Object2d matchingObject = null;
-		float lastSurfaceArea = Float.MAX_VALUE;
+	private boolean copy () {
+		if (selectedObjects.size == 0) return false;
+
+		scene.finishLoading();
+		clipboard.setContent(ClipboardSerializer.write(scene, selectedObjects));
+		App.eventBus.post(new StatusBarEvent("Copied " + selectedObjects.size + " objects"));
+		return true;
+	}
+
+	private boolean cut () {
+		if (copy() == false) return false;
 
-		for (EditorSceneObject object : objects) {
+		undoModule.execute(new ObjectsRemoved(scene, selectedObjects));
+		clearSelection();
+		sceneTab.setDirty(true);
+		return true;
+	}
 
-			if (object instanceof Object2d) {
-				Object2d object2d = (Object2d) object;
+	/** Pastes objects from clipboard, they are centered at mouse position */
+	private boolean paste () {
+		byte[] content = clipboard.getContent();
+		if (content == null) return false;
 
-				if (object2d.sprite.getBoundingRectangle().contains(x, y)) {
-					float currentSurfaceArea = object2d.sprite.getWidth() * object2d.sprite.getHeight();
+		insert(ClipboardSerializer.read(content, camera.getInputX(), camera.getInputY(), cacheModule));
+		return true;
+	}
 
-					if (currentSurfaceArea < lastSurfaceArea) {
-						matchingObject = object2d;
-						lastSurfaceArea = currentSurfaceArea;
-					}
-				}
-			}
+	/** Creates copy of selected objects slightly moved from originals, clipboard is not changed */
+	private boolean duplicate () {
+		if (selectedObjects.size == 0) return false;
 
-		}
+		scene.finishLoading();
+		byte[] data = ClipboardSerializer.write(scene, selectedObjects);
+		Array<Object2d> copies = ClipboardSerializer.read(data, 0, 0, cacheModule);
+
+		//read objects are centered at 0, 0, so they need to be moved to originals position
+		Rectangle bounds = selectedObjects.first().getBoundingRectangle(new Rectangle());
+		for (int i = 1; i < selectedObjects.size; i++)
+			bounds.merge(selectedObjects.get(i).getBoundingRectangle(objectBounds));
+
+		float offset = DUPLICATE_OFFSET * camera.getZoom();
+		float offsetX = bounds.x + bounds.width / 2 + offset;
+		float offsetY = bounds.y + bounds.height / 2 - offset;
+
+		for (Object2d copy : copies)
+			copy.translate(offsetX, offsetY);
+
+		insert(copies);
+		return true;
+	}
+
+	/** Adds objects to scene using single undoable action and selects them */
+	private void insert (Array<Object2d> objects) {
+		undoModule.execute(new ObjectsAddedAction(scene, objects));
+
+		clearSelection();
+		for (Object2d object : objects)
+			addToSelection(object);
 
-		return matchingObject;
+		sceneTab.setDirty(true);
 	}
 
 	public Array<Object2d> getSelectedObjects () {
@@ -212,32 +335,67 @@ public class ObjectManipulatorModule extends SceneModule {
 	}
 
 	public void select (Object2d object) {
+		clearSelection();
+		addToSelection(object);
+	}
+
+	/** Adds object to selection, or removes it if it was already selected */
+	public void toggleSelection (Object2d object) {
+		if (removeFromSelection(object) == false) addToSelection(object);
+	}
+
+	private void clearSelection () {
 		selectedObjects.clear();
-		selectedObjects.add(object);
+		selectionRenderer.selectionChanged();
 		objectProperties.setValuesToFields(selectedObjects);
+		sceneOutline.selectionCleared();
+	}
+
+	private void addToSelection (Object2d object) {
+		selectedObjects.add(object);
+		selectionRenderer.selectionChanged();
+		objectProperties.objectSelected(object);
+		sceneOutline.objectSelected(object);
+	}
+
+	/** @return false if object wasn't selected */
+	private boolean removeFromSelection (Object2d object) {
+		if (selectedObjects.removeValue(object, true) == false) return false;
+
+		selectionRenderer.selectionChanged();
+		objectProperties.objectDeselected(object);
+		sceneOutline.objectDeselected(object);
+		return true;
 	}
 
-	private class ObjectsRemoved implements UndoableAction {
-		private Array<Integer> indexes;
+	private static class ObjectsRemoved implements CompactableAction {
+		private EditorScene scene;
+		private IntArray indexes;
 		private Array<Object2d> objects;
 
-		public ObjectsRemoved (Array<Object2d> selectedObjects) {
-			indexes = new Array<>(selectedObjects.size);
+		/** Used by Kryo */
+		private ObjectsRemoved () {
+		}
+
+		public ObjectsRemoved (EditorScene scene, Array<Object2d> selectedObjects) {
+			this.scene = scene;
+			indexes = new IntArray(selectedObjects.size);
 			objects = new Array<>(selectedObjects);
 		}
 
 		@Override
 		public void execute () {
-			for (Object2d object2d : objects)
-				indexes.add(scene.objects.indexOf(object2d, true));
+			indexes.clear();
 
-			scene.objects.removeAll(objects, true);
+			//each index is relative to scene state after previous objects were removed, so undo must insert them in reverse order
+			for (Object2d object2d : objects)
+				indexes.add(scene.removeObject(object2d));
 		}
 
 		@Override
 		public void undo () {
-			for (int i = 0; i < objects.size; i++)
-				scene.objects.insert(indexes.get(i), objects.get(i));
+			for (int i = objects.size - 1; i >= 0; i--)
+				scene.insertObject(indexes.get(i), objects.get(i));
 		}
 	}
 }
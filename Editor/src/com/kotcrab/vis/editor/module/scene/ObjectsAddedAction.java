@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.utils.Array;
+
+/** Adds objects on top of the scene, undo removes them */
+public class ObjectsAddedAction implements CompactableAction {
+	private EditorScene scene;
+	private Array<EditorSceneObject> objects;
+
+	/** Used by Kryo */
+	private ObjectsAddedAction () {
+	}
+
+	public ObjectsAddedAction (EditorScene scene, EditorSceneObject object) {
+		this.scene = scene;
+		this.objects = new Array<>(1);
+		objects.add(object);
+	}
+
+	public ObjectsAddedAction (EditorScene scene, Array<? extends EditorSceneObject> objects) {
+		this.scene = scene;
+		this.objects = new Array<>(objects.size);
+		this.objects.addAll(objects);
+	}
+
+	@Override
+	public void execute () {
+		for (int i = 0; i < objects.size; i++)
+			scene.addObject(objects.get(i));
+	}
+
+	@Override
+	public void undo () {
+		for (int i = objects.size - 1; i >= 0; i--)
+			scene.removeObject(objects.get(i));
+	}
+
+	public Array<EditorSceneObject> getObjects () {
+		return objects;
+	}
+}
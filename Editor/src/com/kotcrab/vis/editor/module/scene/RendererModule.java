@@ -19,40 +19,145 @@
 
 package com.kotcrab.vis.editor.module.scene;
 
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
+import com.badlogic.gdx.utils.Array;
+import com.kotcrab.vis.ui.VisUI;
+
+import java.util.Arrays;
 
 public class RendererModule extends SceneModule {
+	/** If more than 1 / CULLING_QUERY_RATIO objects is visible, scene is scanned in order instead of sorting query result */
+	private static final int CULLING_QUERY_RATIO = 4;
+
+	private CameraModule camera;
+
 	private ShapeRenderer shapeRenderer;
+	private Drawable white;
+
+	private Array<Object2d> visibleObjects = new Array<>();
+	private long[] sortKeys = new long[0];
+	private Rectangle objectBounds = new Rectangle();
+
+	private int drawnObjects;
+	private int culledObjects;
+	private int renderCalls;
 
 	@Override
 	public void added () {
 		shapeRenderer = new ShapeRenderer();
+		white = VisUI.getSkin().getDrawable("white");
+	}
+
+	@Override
+	public void init () {
+		camera = sceneContainer.get(CameraModule.class);
 	}
 
 	@Override
 	public void render (Batch batch) {
-		for (EditorSceneObject obj : scene.objects) {
+		int startRenderCalls = getTotalRenderCalls(batch);
+		Rectangle area = camera.getVisibleArea();
+
+		visibleObjects.clear();
+		scene.findObjects(area, visibleObjects);
+
+		if (visibleObjects.size * CULLING_QUERY_RATIO < scene.getObjectCount())
+			drawSorted(batch, visibleObjects);
+		else
+			drawAll(batch, area);
+
+		culledObjects = scene.getObjectCount() - drawnObjects;
+
+		drawSceneBorder(batch);
+
+		renderCalls = getTotalRenderCalls(batch) - startRenderCalls;
+	}
+
+	/** Draws objects found by spatial index, they have to be sorted by z-index first */
+	private void drawSorted (Batch batch, Array<Object2d> objects) {
+		if (sortKeys.length < objects.size) sortKeys = new long[objects.size];
+
+		for (int i = 0; i < objects.size; i++)
+			sortKeys[i] = (long) scene.indexOf(objects.get(i)) << 32 | i;
+
+		Arrays.sort(sortKeys, 0, objects.size);
+
+		for (int i = 0; i < objects.size; i++)
+			objects.get((int) sortKeys[i]).draw(batch);
+
+		drawnObjects = objects.size;
+	}
+
+	private void drawAll (Batch batch, Rectangle area) {
+		drawnObjects = 0;
+
+		for (EditorSceneObject obj : scene.getObjects()) {
 			Object2d obj2d = (Object2d) obj;
-			obj2d.sprite.draw(batch);
+
+			if (obj2d.getBoundingRectangle(objectBounds).overlaps(area)) {
+				obj2d.draw(batch);
+				drawnObjects++;
+			}
 		}
+	}
+
+	/** Border is drawn using batch, so it doesn't have to be ended for separate ShapeRenderer pass */
+	private void drawSceneBorder (Batch batch) {
+		float lineWidth = camera.getZoom();
+
+		batch.setColor(1, 1, 1, 1);
+		white.draw(batch, 0, 0, scene.width, lineWidth);
+		white.draw(batch, 0, scene.height - lineWidth, scene.width, lineWidth);
+		white.draw(batch, 0, 0, lineWidth, scene.height);
+		white.draw(batch, scene.width - lineWidth, 0, lineWidth, scene.height);
+	}
 
-		batch.end();
-		shapeRenderer.setColor(Color.WHITE);
-		shapeRenderer.begin(ShapeType.Line);
-		shapeRenderer.rect(0,0, scene.width, scene.height);
-		shapeRenderer.end();
-		batch.begin();
+	private int getTotalRenderCalls (Batch batch) {
+		if (batch instanceof SpriteBatch) return ((SpriteBatch) batch).totalRenderCalls;
+		return 0;
 	}
 
 	@Override
-	public void dispose () {
+	public void hibernate () {
 		shapeRenderer.dispose();
+		shapeRenderer = null;
+		visibleObjects = new Array<>();
+		sortKeys = new long[0];
+	}
+
+	@Override
+	public void wakeUp () {
+		shapeRenderer = new ShapeRenderer();
+	}
+
+	@Override
+	public void dispose () {
+		if (shapeRenderer != null) shapeRenderer.dispose();
 	}
 
 	public ShapeRenderer getShapeRenderer () {
 		return shapeRenderer;
 	}
+
+	/** @return number of objects drawn in last frame */
+	public int getDrawnObjects () {
+		return drawnObjects;
+	}
+
+	/** @return number of objects that were outside of camera view in last frame */
+	public int getCulledObjects () {
+		return culledObjects;
+	}
+
+	/**
+	 * @return number of batch flushes made while drawing scene objects in last frame, only available when SpriteBatch is used.
+	 * Objects drawn after last flush are rendered together with rest of the frame and are not counted.
+	 */
+	public int getRenderCalls () {
+		return renderCalls;
+	}
 }
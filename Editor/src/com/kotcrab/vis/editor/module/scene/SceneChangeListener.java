@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Receives batched notifications about changed scene objects, see {@link EditorScene#addChangeListener(SceneChangeListener)}.
+ * Constants are change flags returned by {@link EditorSceneObject#getChanges()}.
+ */
+public interface SceneChangeListener {
+	int ADDED = 1;
+	int REMOVED = 1 << 1;
+	/** Position, size, origin, scale, rotation or flip */
+	int TRANSFORM = 1 << 2;
+	/** Tint or texture region */
+	int APPEARANCE = 1 << 3;
+	/** Object id */
+	int PROPERTIES = 1 << 4;
+	int Z_INDEX = 1 << 5;
+
+	/**
+	 * Called once per frame if some objects were changed since last notification, each object is reported only once. Listener
+	 * must not modify scene while it's being notified.
+	 * @param objects changed objects, including objects that were removed from scene, array must not be modified
+	 */
+	void objectsChanged (Array<EditorSceneObject> objects);
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Scene file with objects grouped by area. Scene data is followed by directory of chunks (bounds, object count and data
+ * length) and by data of chunks, so objects from given area can be read without reading whole scene. Every object is stored
+ * with its z-index. Scene files written before chunks were introduced have all objects in scene data and no chunks.
+ */
+public class SceneChunks {
+	/** Size of square area that objects are grouped by, objects are assigned to chunk by center of their bounds */
+	private static final float CHUNK_SIZE = 512;
+
+	private final byte[] bytes;
+	private final EditorScene scene;
+	private final Array<Chunk> chunks = new Array<>();
+	private int objectCount;
+
+	private SceneChunks (byte[] bytes, EditorScene scene) {
+		this.bytes = bytes;
+		this.scene = scene;
+	}
+
+	public static void write (Kryo kryo, Output output, EditorScene scene) {
+		Array<EditorSceneObject> objects = scene.getObjects();
+		LongMap<ChunkWriter> writers = new LongMap<>();
+		Rectangle bounds = new Rectangle();
+
+		for (int i = 0; i < objects.size; i++) {
+			if (objects.get(i) instanceof Object2d == false)
+				throw new KryoException("Unsupported scene object: " + objects.get(i).getClass());
+
+			Object2d object = (Object2d) objects.get(i);
+			object.getBoundingRectangle(bounds);
+
+			long x = (long) Math.floor((bounds.x + bounds.width / 2) / CHUNK_SIZE);
+			long y = (long) Math.floor((bounds.y + bounds.height / 2) / CHUNK_SIZE);
+			long key = (x << 32) | (y & 0xffffffffL);
+
+			ChunkWriter writer = writers.get(key);
+			if (writer == null) {
+				writer = new ChunkWriter();
+				writer.bounds.set(bounds);
+				writers.put(key, writer);
+			} else
+				writer.bounds.merge(bounds);
+
+			writer.output.writeInt(i, true);
+			object.writeData(writer.output);
+			writer.objectCount++;
+		}
+
+		kryo.writeObject(output, scene.createChunkedHeader());
+
+		output.writeInt(objects.size, true);
+		output.writeInt(writers.size, true);
+
+		for (ChunkWriter writer : writers.values()) {
+			output.writeFloat(writer.bounds.x);
+			output.writeFloat(writer.bounds.y);
+			output.writeFloat(writer.bounds.width);
+			output.writeFloat(writer.bounds.height);
+			output.writeInt(writer.objectCount, true);
+			output.writeInt(writer.output.position(), true);
+		}
+
+		for (ChunkWriter writer : writers.values())
+			output.writeBytes(writer.output.getBuffer(), 0, writer.output.position());
+	}
+
+	/** Reads scene data and chunk directory, objects are read later from chunks */
+	public static SceneChunks read (Kryo kryo, byte[] bytes) {
+		Input input = new Input(bytes);
+		SceneChunks sceneChunks = new SceneChunks(bytes, kryo.readObject(input, EditorScene.class));
+		if (sceneChunks.scene.objectsInChunks == false) return sceneChunks;
+
+		sceneChunks.objectCount = input.readInt(true);
+		int chunkCount = input.readInt(true);
+
+		for (int i = 0; i < chunkCount; i++) {
+			Chunk chunk = new Chunk();
+			chunk.bounds.set(input.readFloat(), input.readFloat(), input.readFloat(), input.readFloat());
+			chunk.objectCount = input.readInt(true);
+			chunk.length = input.readInt(true);
+			sceneChunks.chunks.add(chunk);
+		}
+
+		int offset = input.position();
+		for (Chunk chunk : sceneChunks.chunks) {
+			chunk.offset = offset;
+			offset += chunk.length;
+		}
+
+		if (offset > bytes.length) throw new KryoException("Scene file is truncated");
+
+		return sceneChunks;
+	}
+
+	/** @return scene read without objects if {@link #isChunked()}, scene with all objects otherwise */
+	public EditorScene getScene () {
+		return scene;
+	}
+
+	/** @return false if scene file was written in old format without chunks, in that case scene already has all objects */
+	public boolean isChunked () {
+		return scene.objectsInChunks;
+	}
+
+	public Array<Chunk> getChunks () {
+		return chunks;
+	}
+
+	/** @return number of objects in all chunks */
+	public int getObjectCount () {
+		return objectCount;
+	}
+
+	/**
+	 * Reads objects of chunk, can be called from any thread. Read objects don't have sprites.
+	 * @param zIndexes z-indexes that objects had when scene was saved, in same order as objects, z-indexes are increasing
+	 */
+	public void readChunk (Chunk chunk, Array<Object2d> objects, IntArray zIndexes) {
+		Input input = new Input(bytes, chunk.offset, chunk.length);
+
+		for (int i = 0; i < chunk.objectCount; i++) {
+			int zIndex = input.readInt(true);
+			if (zIndex >= objectCount) throw new KryoException("Invalid object z-index in scene file: " + zIndex);
+
+			Object2d object = new Object2d();
+			object.readData(input);
+			objects.add(object);
+			zIndexes.add(zIndex);
+		}
+	}
+
+	/** Reads objects from all chunks to scene objects array, objects don't have sprites and scene indexes must be rebuilt */
+	public EditorScene readAll () {
+		if (isChunked() == false) {
+			for (EditorSceneObject object : scene.getObjects())
+				if (object instanceof Object2d) ((Object2d) object).loadLegacyData();
+
+			return scene;
+		}
+
+		EditorSceneObject[] sceneObjects = new EditorSceneObject[objectCount];
+		Array<Object2d> objects = new Array<>();
+		IntArray zIndexes = new IntArray();
+
+		for (Chunk chunk : chunks) {
+			readChunk(chunk, objects, zIndexes);
+
+			for (int i = 0; i < objects.size; i++)
+				sceneObjects[zIndexes.get(i)] = objects.get(i);
+
+			objects.clear();
+			zIndexes.clear();
+		}
+
+		for (EditorSceneObject object : sceneObjects)
+			if (object == null) throw new KryoException("Scene file is missing some objects");
+
+		scene.setObjects(new Array<>(sceneObjects));
+		return scene;
+	}
+
+	public static class Chunk {
+		/** Union of bounds of all chunk objects */
+		public final Rectangle bounds = new Rectangle();
+		private int objectCount;
+		private int offset;
+		private int length;
+
+		public int getObjectCount () {
+			return objectCount;
+		}
+	}
+
+	private static class ChunkWriter {
+		final Rectangle bounds = new Rectangle();
+		final Output output = new Output(256, -1);
+		int objectCount;
+	}
+}
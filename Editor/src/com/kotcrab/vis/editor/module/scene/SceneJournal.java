@@ -0,0 +1,435 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.kotcrab.vis.editor.module.project.SceneIOModule;
+import com.kotcrab.vis.editor.util.Log;
+import com.kotcrab.vis.runtime.scene.SceneViewport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of object changes made since scene file was last fully written. Journal is stored next to scene file and
+ * consists of blocks, each block is written by single save and holds add, remove, update and move operations computed by
+ * comparing versions of objects in saved scene snapshot with versions that were previously saved. Journal is only valid for scene file with same
+ * {@link EditorScene#journalGeneration}, it is discarded when scene file is rewritten.
+ * <p/>
+ * Except for {@link #replay(SceneIOModule, EditorScene, File)} which is used when scene is loaded, journal is only used by
+ * scene save thread.
+ */
+public class SceneJournal {
+	public static final String EXTENSION = "journal";
+
+	private static final int MAGIC = 0x564A524E;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	/** Each block starts with payload length and its CRC32 */
+	private static final int BLOCK_HEADER_SIZE = 8;
+
+	/** Journal smaller than this is never compacted */
+	private static final long MIN_COMPACT_SIZE = 256 * 1024;
+
+	private static final byte OP_ADD = 0;
+	private static final byte OP_REMOVE = 1;
+	private static final byte OP_UPDATE = 2;
+	private static final byte OP_MOVE = 3;
+
+	private final File journalFile;
+	private final long generation;
+	private final long sceneFileLength;
+
+	/** Length of valid journal data, 0 if journal file doesn't exist yet or it's outdated and must be recreated */
+	private long length;
+	/** Set when saved state may no longer match journal file, scene file must be rewritten */
+	private boolean broken;
+
+	/**
+	 * Saved state of scene objects, only handle and version of each object is kept, object data is only needed while it's
+	 * written to journal
+	 */
+	private ZIndexTree order = new ZIndexTree();
+	private IntMap<EditorSceneObject> objects = new IntMap<>();
+
+	/** Scene properties are not journaled, scene file must be rewritten when they change */
+	private int width;
+	private int height;
+	private SceneViewport viewport;
+
+	/** Versions of scene that saved state was created from, see {@link EditorScene#getVersion()} */
+	private long version;
+	private long orderVersion;
+
+	private Output output = new Output(4096, -1);
+	private CRC32 crc = new CRC32();
+	private int operations;
+
+	/**
+	 * Creates journal for scene file that was just written or loaded
+	 * @param savedScene state of scene that is saved in scene file with its journal, objects must have handles and versions of
+	 * objects of edited scene. Journal doesn't keep references to scene or its objects.
+	 * @param length length of valid journal data, 0 if there is no valid journal, -1 if journal is damaged and scene file
+	 * must be rewritten on next save
+	 */
+	public SceneJournal (File sceneFile, EditorScene savedScene, long length) {
+		this.journalFile = getJournalFile(sceneFile);
+		this.generation = savedScene.journalGeneration;
+		this.sceneFileLength = sceneFile.length();
+		this.length = Math.max(length, 0);
+		this.broken = length < 0;
+		this.width = savedScene.width;
+		this.height = savedScene.height;
+		this.viewport = savedScene.viewport;
+		this.version = savedScene.getVersion();
+		this.orderVersion = savedScene.getOrderVersion();
+
+		for (EditorSceneObject object : savedScene.getObjects()) {
+			if (object instanceof Object2d == false || object.getHandle() == 0) {
+				broken = true;
+				break;
+			}
+
+			EditorSceneObject saved = createSavedObject(object);
+			order.add(saved);
+			objects.put(saved.getHandle(), saved);
+		}
+	}
+
+	private static EditorSceneObject createSavedObject (EditorSceneObject object) {
+		EditorSceneObject saved = new EditorSceneObject();
+		saved.setHandle(object.getHandle());
+		saved.setVersion(object.getVersion());
+		return saved;
+	}
+
+	public static File getJournalFile (File sceneFile) {
+		return new File(sceneFile.getParentFile(), sceneFile.getName() + "." + EXTENSION);
+	}
+
+	public long getGeneration () {
+		return generation;
+	}
+
+	/** @return true if journal grew large enough that scene file should be rewritten */
+	public boolean shouldCompact () {
+		return length > Math.max(MIN_COMPACT_SIZE, sceneFileLength / 2);
+	}
+
+	/**
+	 * Appends changes between last saved state and provided scene snapshot to journal file.
+	 * @return false if changes couldn't be written to journal, scene file must be rewritten in that case
+	 */
+	public boolean append (EditorScene snapshot) {
+		if (broken) return false;
+		if (snapshot.width != width || snapshot.height != height || snapshot.viewport != viewport) return false;
+		if (snapshot.getVersion() == version) return true;
+
+		Array<EditorSceneObject> newObjects = snapshot.getObjects();
+		for (EditorSceneObject object : newObjects)
+			if (object instanceof Object2d == false || object.getHandle() == 0) return false;
+
+		//from now on saved state doesn't match journal file until block is written
+		broken = true;
+
+		output.clear();
+		output.setPosition(BLOCK_HEADER_SIZE);
+		operations = 0;
+		if (snapshot.getOrderVersion() == orderVersion)
+			writeUpdates(newObjects);
+		else
+			writeChanges(newObjects);
+
+		version = snapshot.getVersion();
+		orderVersion = snapshot.getOrderVersion();
+
+		if (operations == 0) {
+			broken = false;
+			return true;
+		}
+
+		int end = output.position();
+		crc.reset();
+		crc.update(output.getBuffer(), BLOCK_HEADER_SIZE, end - BLOCK_HEADER_SIZE);
+		output.setPosition(0);
+		output.writeInt(end - BLOCK_HEADER_SIZE);
+		output.writeInt((int) crc.getValue());
+		output.setPosition(end);
+
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(journalFile, "rw");
+
+			if (length == 0) {
+				file.setLength(0);
+				file.writeInt(MAGIC);
+				file.writeInt(VERSION);
+				file.writeLong(generation);
+				length = HEADER_SIZE;
+			} else {
+				//drops data left by interrupted write
+				file.setLength(length);
+				file.seek(length);
+			}
+
+			file.write(output.getBuffer(), 0, end);
+			length += end;
+			broken = false;
+			return true;
+		} catch (IOException e) {
+			Log.exception(e);
+			return false;
+		} finally {
+			close(file);
+		}
+	}
+
+	/** Used when objects weren't added, removed or reordered, so saved objects have same indexes as new ones */
+	private void writeUpdates (Array<EditorSceneObject> newObjects) {
+		for (int i = 0; i < newObjects.size; i++) {
+			Object2d object = (Object2d) newObjects.get(i);
+			writeUpdateIfChanged(objects.get(object.getHandle()), object, i);
+		}
+	}
+
+	private void writeChanges (Array<EditorSceneObject> newObjects) {
+		IntMap<Object2d> newObjectsMap = new IntMap<>(newObjects.size);
+		for (EditorSceneObject object : newObjects)
+			newObjectsMap.put(object.getHandle(), (Object2d) object);
+
+		Array<EditorSceneObject> removed = new Array<>();
+		for (EditorSceneObject object : objects.values())
+			if (newObjectsMap.containsKey(object.getHandle()) == false) removed.add(object);
+
+		for (EditorSceneObject object : removed) {
+			objects.remove(object.getHandle());
+			writeOperation(OP_REMOVE, order.remove(object));
+		}
+
+		IntArray oldIndexes = new IntArray(newObjects.size);
+		for (EditorSceneObject object : newObjects) {
+			EditorSceneObject saved = objects.get(object.getHandle());
+			if (saved != null) oldIndexes.add(order.indexOf(saved));
+		}
+
+		//objects that keep their relative order don't have to be moved, every other object is moved (or added) right after
+		//object that precedes it in new order, which leaves all objects in new order after last one is placed
+		boolean[] stable = findLongestIncreasingSubsequence(oldIndexes);
+		int keptObjects = 0;
+		EditorSceneObject previous = null;
+
+		for (EditorSceneObject sceneObject : newObjects) {
+			Object2d object = (Object2d) sceneObject;
+			EditorSceneObject saved = objects.get(object.getHandle());
+
+			if (saved == null) {
+				saved = createSavedObject(object);
+				int index = previous == null ? 0 : order.indexOf(previous) + 1;
+				order.insert(index, saved);
+				objects.put(saved.getHandle(), saved);
+
+				writeOperation(OP_ADD, index);
+				object.writeData(output);
+			} else {
+				if (stable[keptObjects++] == false) {
+					int from = order.indexOf(saved);
+					int to = previous == null ? 0 : order.indexOf(previous) + 1;
+					if (to > from) to--;
+
+					order.move(saved, to);
+					writeOperation(OP_MOVE, from);
+					output.writeInt(to, true);
+				}
+
+				writeUpdateIfChanged(saved, object, order.indexOf(saved));
+			}
+
+			previous = saved;
+		}
+	}
+
+	private void writeUpdateIfChanged (EditorSceneObject saved, Object2d object, int index) {
+		if (saved.getVersion() != object.getVersion()) {
+			saved.setVersion(object.getVersion());
+			writeOperation(OP_UPDATE, index);
+			object.writeData(output);
+		}
+	}
+
+	/** @return array where element is true if value at same index belongs to longest increasing subsequence */
+	private static boolean[] findLongestIncreasingSubsequence (IntArray values) {
+		int[] tails = new int[values.size];
+		int[] previous = new int[values.size];
+		int length = 0;
+
+		for (int i = 0; i < values.size; i++) {
+			int value = values.get(i);
+			int low = 0;
+			int high = length;
+
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (values.get(tails[middle]) < value)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+
+			previous[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) length++;
+		}
+
+		boolean[] result = new boolean[values.size];
+		for (int i = length > 0 ? tails[length - 1] : -1; i != -1; i = previous[i])
+			result[i] = true;
+
+		return result;
+	}
+
+	private void writeOperation (byte type, int index) {
+		output.writeByte(type);
+		output.writeInt(index, true);
+		operations++;
+	}
+
+	/** @return true if scene file has journal with some changes that must be replayed after scene is loaded */
+	public static boolean hasChanges (File sceneFile, long generation) {
+		File journalFile = getJournalFile(sceneFile);
+		if (journalFile.length() <= HEADER_SIZE) return false;
+
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(journalFile, "r");
+			return file.readInt() == MAGIC && file.readInt() == VERSION && file.readLong() == generation;
+		} catch (IOException e) {
+			Log.exception(e);
+			return true;
+		} finally {
+			close(file);
+		}
+	}
+
+	/**
+	 * Applies journal of scene file to scene that was loaded from it. Blocks are applied in order until end of journal or first
+	 * incomplete or damaged block, which can be left by interrupted save.
+	 * @return length of journal data that was applied, 0 if there is no journal for this scene file, -1 if journal was
+	 * damaged and scene may be only partially updated
+	 */
+	public static long replay (SceneIOModule sceneIO, EditorScene scene, File sceneFile) {
+		File journalFile = getJournalFile(sceneFile);
+		if (journalFile.exists() == false) return 0;
+
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(journalFile.toPath());
+		} catch (IOException e) {
+			Log.exception(e);
+			return 0;
+		}
+
+		Input input = new Input(bytes);
+		if (bytes.length < HEADER_SIZE || input.readInt() != MAGIC || input.readInt() != VERSION) {
+			Log.warn("Ignoring invalid scene journal: " + journalFile.getPath());
+			return 0;
+		}
+
+		//journal was written before scene file was rewritten, changes from it are already in scene file
+		if (input.readLong() != scene.journalGeneration) return 0;
+
+		CRC32 crc = new CRC32();
+		long length = HEADER_SIZE;
+
+		while (bytes.length - length >= BLOCK_HEADER_SIZE) {
+			input.setPosition((int) length);
+			int blockLength = input.readInt();
+			int blockCrc = input.readInt();
+			int start = input.position();
+
+			if (blockLength < 0 || bytes.length - start < blockLength) break;
+
+			crc.reset();
+			crc.update(bytes, start, blockLength);
+			if ((int) crc.getValue() != blockCrc) break;
+
+			try {
+				input.setLimit(start + blockLength);
+				while (input.position() < start + blockLength)
+					replayOperation(sceneIO, scene, input);
+				input.setLimit(bytes.length);
+			} catch (RuntimeException e) {
+				Log.exception(e);
+				Log.error("Scene journal is damaged, some changes may be missing: " + journalFile.getPath());
+				return -1;
+			}
+
+			length = start + blockLength;
+		}
+
+		if (length < bytes.length) Log.warn("Ignoring incomplete data at the end of scene journal: " + journalFile.getPath());
+
+		return length;
+	}
+
+	private static void replayOperation (SceneIOModule sceneIO, EditorScene scene, Input input) {
+		byte type = input.readByte();
+		int index = input.readInt(true);
+
+		switch (type) {
+			case OP_ADD:
+				Object2d object = new Object2d();
+				object.readData(input);
+				sceneIO.prepareObjectAfterLoad(object);
+				scene.insertObject(index, object);
+				break;
+			case OP_REMOVE:
+				scene.removeObject(scene.getObject(index));
+				break;
+			case OP_UPDATE:
+				Object2d updated = (Object2d) scene.getObject(index);
+				updated.readData(input);
+				sceneIO.prepareObjectAfterLoad(updated);
+				scene.updateObjectBounds(updated);
+				break;
+			case OP_MOVE:
+				scene.moveObject(scene.getObject(index), input.readInt(true));
+				break;
+			default:
+				throw new IllegalStateException("Unknown scene journal operation: " + type);
+		}
+	}
+
+	private static void close (RandomAccessFile file) {
+		if (file == null) return;
+
+		try {
+			file.close();
+		} catch (IOException e) {
+			Log.exception(e);
+		}
+	}
+}
@@ -25,6 +25,8 @@ import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.kotcrab.vis.editor.module.project.ProjectModule;
 import com.kotcrab.vis.editor.ui.scene.SceneTab;
 
+import java.util.EnumSet;
+
 public abstract class SceneModule extends ProjectModule {
 	protected EditorScene scene;
 	protected SceneTab sceneTab;
@@ -53,6 +55,28 @@ public abstract class SceneModule extends ProjectModule {
 
 	}
 
+	/**
+	 * Called by module container when tab was hidden for long time. Module should release heavy resources, such as GL
+	 * resources or references to scene objects, scene objects will be replaced by new instances before {@link #wakeUp()}.
+	 */
+	public void hibernate () {
+
+	}
+
+	/** Called by module container when hibernated tab is restored, module should recreate resources released in {@link #hibernate()} */
+	public void wakeUp () {
+
+	}
+
+	/**
+	 * Returns input events that this module handles, module won't receive events that aren't included here. Called once by
+	 * container when building dispatch arrays. Module can consume event by calling {@link InputEvent#stop()}, modules added
+	 * after it won't receive that event.
+	 */
+	public EnumSet<SceneInputEvent> getHandledInputEvents () {
+		return EnumSet.noneOf(SceneInputEvent.class);
+	}
+
 	public boolean touchDown (InputEvent event, float x, float y, int pointer, int button) {
 		return false;
 	}
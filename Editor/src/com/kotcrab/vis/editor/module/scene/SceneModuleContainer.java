@@ -22,13 +22,30 @@ package com.kotcrab.vis.editor.module.scene;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.utils.Array;
 import com.kotcrab.vis.editor.module.BaseModuleContainer;
 import com.kotcrab.vis.editor.module.EditorModuleContainer;
 import com.kotcrab.vis.editor.module.project.Project;
 import com.kotcrab.vis.editor.module.project.ProjectModuleContainer;
 import com.kotcrab.vis.editor.ui.scene.SceneTab;
+import com.kotcrab.vis.editor.util.Log;
 
 public class SceneModuleContainer extends BaseModuleContainer<SceneModule> {
+	private static final String TAG = "SceneModuleContainer";
+
+	private static final SceneInputEvent[] EVENTS = SceneInputEvent.values();
+	private static final SceneModule[][] NO_HANDLERS = new SceneModule[EVENTS.length][0];
+	private static final int TOUCH_DOWN = SceneInputEvent.TOUCH_DOWN.ordinal();
+	private static final int TOUCH_UP = SceneInputEvent.TOUCH_UP.ordinal();
+	private static final int TOUCH_DRAGGED = SceneInputEvent.TOUCH_DRAGGED.ordinal();
+	private static final int MOUSE_MOVED = SceneInputEvent.MOUSE_MOVED.ordinal();
+	private static final int ENTER = SceneInputEvent.ENTER.ordinal();
+	private static final int EXIT = SceneInputEvent.EXIT.ordinal();
+	private static final int SCROLLED = SceneInputEvent.SCROLLED.ordinal();
+	private static final int KEY_DOWN = SceneInputEvent.KEY_DOWN.ordinal();
+	private static final int KEY_UP = SceneInputEvent.KEY_UP.ordinal();
+	private static final int KEY_TYPED = SceneInputEvent.KEY_TYPED.ordinal();
+
 	private Project project;
 	private EditorModuleContainer editorModuleContainer;
 	private ProjectModuleContainer projectModuleContainer;
@@ -36,6 +53,18 @@ public class SceneModuleContainer extends BaseModuleContainer<SceneModule> {
 	private SceneTab sceneTab;
 	private EditorScene scene;
 
+	private boolean initialized;
+	private boolean hibernated;
+
+	/** Modules handling each event type, indexed by {@link SceneInputEvent#ordinal()} */
+	private SceneModule[][] handlers = new SceneModule[EVENTS.length][0];
+	/** Dispatch arrays that are currently used, when container is hibernated no modules receives input */
+	private SceneModule[][] dispatch = handlers;
+
+	private boolean profilingEnabled = Log.getLogLevel() >= Log.DEBUG;
+	private long[][] inputTime = new long[EVENTS.length][0];
+	private int[][] inputCount = new int[EVENTS.length][0];
+
 	public SceneModuleContainer (ProjectModuleContainer projectModuleContainer, SceneTab sceneTab,  EditorScene scene) {
 		this.editorModuleContainer = projectModuleContainer.getEditorContainer();
 		this.projectModuleContainer = projectModuleContainer;
@@ -51,6 +80,38 @@ public class SceneModuleContainer extends BaseModuleContainer<SceneModule> {
 		module.setSceneObjects(this, sceneTab, scene);
 
 		super.add(module);
+
+		if (initialized) buildDispatchArrays();
+	}
+
+	@Override
+	public void init () {
+		super.init();
+		buildDispatchArrays();
+		initialized = true;
+	}
+
+	@Override
+	public void dispose () {
+		if (profilingEnabled) logInputProfilingResults();
+		super.dispose();
+		initialized = false;
+		buildDispatchArrays();
+	}
+
+	private void buildDispatchArrays () {
+		Array<SceneModule> handlers = new Array<>();
+
+		for (SceneInputEvent event : EVENTS) {
+			handlers.clear();
+
+			for (int i = 0; i < modules.size; i++)
+				if (modules.get(i).getHandledInputEvents().contains(event)) handlers.add(modules.get(i));
+
+			this.handlers[event.ordinal()] = handlers.toArray(SceneModule.class);
+			inputTime[event.ordinal()] = new long[handlers.size];
+			inputCount[event.ordinal()] = new int[handlers.size];
+		}
 	}
 
 	public Project getProject () {
@@ -64,10 +125,42 @@ public class SceneModuleContainer extends BaseModuleContainer<SceneModule> {
 	}
 
 	public void render (Batch batch) {
+		if (hibernated) return;
+
+		scene.dispatchChanges();
+
 		for (int i = 0; i < modules.size; i++)
 			modules.get(i).render(batch);
 	}
 
+	/**
+	 * Releases heavy resources of all modules, modules are hibernated in reverse order. Hibernated container doesn't render
+	 * and doesn't dispatch input until {@link #wakeUp()} is called.
+	 */
+	public void hibernate () {
+		if (hibernated) return;
+		hibernated = true;
+		dispatch = NO_HANDLERS;
+
+		for (int i = modules.size - 1; i >= 0; i--)
+			modules.get(i).hibernate();
+	}
+
+	/** Recreates resources released by {@link #hibernate()}, scene objects must be already restored */
+	public void wakeUp () {
+		if (hibernated == false) return;
+
+		for (int i = 0; i < modules.size; i++)
+			modules.get(i).wakeUp();
+
+		hibernated = false;
+		dispatch = handlers;
+	}
+
+	public boolean isHibernated () {
+		return hibernated;
+	}
+
 	public void onShow () {
 		for (int i = 0; i < modules.size; i++)
 			modules.get(i).onShow();
@@ -85,75 +178,174 @@ public class SceneModuleContainer extends BaseModuleContainer<SceneModule> {
 
 	public boolean touchDown (InputEvent event, float x, float y, int pointer, int button) {
 		boolean returnValue = false;
+		SceneModule[] modules = dispatch[TOUCH_DOWN];
 
-		for (int i = 0; i < modules.size; i++)
-			if (modules.get(i).touchDown(event, x, y, pointer, button)) returnValue = true;
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			if (modules[i].touchDown(event, x, y, pointer, button)) returnValue = true;
+			profilingEnd(TOUCH_DOWN, i, start);
+			if (event.isStopped()) break;
+		}
 
 		return returnValue;
 	}
 
 	public void touchUp (InputEvent event, float x, float y, int pointer, int button) {
-		for (int i = 0; i < modules.size; i++)
-			modules.get(i).touchUp(event, x, y, pointer, button);
+		SceneModule[] modules = dispatch[TOUCH_UP];
+
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			modules[i].touchUp(event, x, y, pointer, button);
+			profilingEnd(TOUCH_UP, i, start);
+			if (event.isStopped()) break;
+		}
 	}
 
 	public void touchDragged (InputEvent event, float x, float y, int pointer) {
-		for (int i = 0; i < modules.size; i++)
-			modules.get(i).touchDragged(event, x, y, pointer);
+		SceneModule[] modules = dispatch[TOUCH_DRAGGED];
+
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			modules[i].touchDragged(event, x, y, pointer);
+			profilingEnd(TOUCH_DRAGGED, i, start);
+			if (event.isStopped()) break;
+		}
 	}
 
 	public boolean mouseMoved (InputEvent event, float x, float y) {
 		boolean returnValue = false;
+		SceneModule[] modules = dispatch[MOUSE_MOVED];
 
-		for (int i = 0; i < modules.size; i++)
-			if (modules.get(i).mouseMoved(event, x, y)) returnValue = true;
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			if (modules[i].mouseMoved(event, x, y)) returnValue = true;
+			profilingEnd(MOUSE_MOVED, i, start);
+			if (event.isStopped()) break;
+		}
 
 		return returnValue;
 	}
 
 	public void enter (InputEvent event, float x, float y, int pointer, Actor fromActor) {
-		for (int i = 0; i < modules.size; i++)
-			modules.get(i).enter(event, x, y, pointer, fromActor);
+		SceneModule[] modules = dispatch[ENTER];
+
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			modules[i].enter(event, x, y, pointer, fromActor);
+			profilingEnd(ENTER, i, start);
+			if (event.isStopped()) break;
+		}
 	}
 
 	public void exit (InputEvent event, float x, float y, int pointer, Actor toActor) {
-		for (int i = 0; i < modules.size; i++)
-			modules.get(i).exit(event, x, y, pointer, toActor);
+		SceneModule[] modules = dispatch[EXIT];
+
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			modules[i].exit(event, x, y, pointer, toActor);
+			profilingEnd(EXIT, i, start);
+			if (event.isStopped()) break;
+		}
 	}
 
 	public boolean scrolled (InputEvent event, float x, float y, int amount) {
 		boolean returnValue = false;
+		SceneModule[] modules = dispatch[SCROLLED];
 
-		for (int i = 0; i < modules.size; i++)
-			if (modules.get(i).scrolled(event, x, y, amount)) returnValue = true;
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			if (modules[i].scrolled(event, x, y, amount)) returnValue = true;
+			profilingEnd(SCROLLED, i, start);
+			if (event.isStopped()) break;
+		}
 
 		return returnValue;
 	}
 
 	public boolean keyDown (InputEvent event, int keycode) {
 		boolean returnValue = false;
+		SceneModule[] modules = dispatch[KEY_DOWN];
 
-		for (int i = 0; i < modules.size; i++)
-			if (modules.get(i).keyDown(event, keycode)) returnValue = true;
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			if (modules[i].keyDown(event, keycode)) returnValue = true;
+			profilingEnd(KEY_DOWN, i, start);
+			if (event.isStopped()) break;
+		}
 
 		return returnValue;
 	}
 
 	public boolean keyUp (InputEvent event, int keycode) {
 		boolean returnValue = false;
+		SceneModule[] modules = dispatch[KEY_UP];
 
-		for (int i = 0; i < modules.size; i++)
-			if (modules.get(i).keyUp(event, keycode)) returnValue = true;
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			if (modules[i].keyUp(event, keycode)) returnValue = true;
+			profilingEnd(KEY_UP, i, start);
+			if (event.isStopped()) break;
+		}
 
 		return returnValue;
 	}
 
 	public boolean keyTyped (InputEvent event, char character) {
 		boolean returnValue = false;
+		SceneModule[] modules = dispatch[KEY_TYPED];
 
-		for (int i = 0; i < modules.size; i++)
-			if (modules.get(i).keyTyped(event, character)) returnValue = true;
+		for (int i = 0; i < modules.length; i++) {
+			long start = profilingStart();
+			if (modules[i].keyTyped(event, character)) returnValue = true;
+			profilingEnd(KEY_TYPED, i, start);
+			if (event.isStopped()) break;
+		}
 
 		return returnValue;
 	}
+
+	private long profilingStart () {
+		return profilingEnabled ? System.nanoTime() : 0;
+	}
+
+	private void profilingEnd (int eventType, int moduleIndex, long start) {
+		if (profilingEnabled) {
+			inputTime[eventType][moduleIndex] += System.nanoTime() - start;
+			inputCount[eventType][moduleIndex]++;
+		}
+	}
+
+	/** Enables measuring time spent by each module handling input events, disabled by default unless log level is debug */
+	public void setInputProfilingEnabled (boolean profilingEnabled) {
+		this.profilingEnabled = profilingEnabled;
+	}
+
+	public boolean isInputProfilingEnabled () {
+		return profilingEnabled;
+	}
+
+	/** @return total time in nanoseconds that module spent handling given event type, 0 if profiling is disabled */
+	public long getInputTime (SceneModule module, SceneInputEvent event) {
+		SceneModule[] modules = handlers[event.ordinal()];
+
+		for (int i = 0; i < modules.length; i++)
+			if (modules[i] == module) return inputTime[event.ordinal()][i];
+
+		return 0;
+	}
+
+	public void logInputProfilingResults () {
+		for (SceneInputEvent event : EVENTS) {
+			SceneModule[] modules = handlers[event.ordinal()];
+
+			for (int i = 0; i < modules.length; i++) {
+				int count = inputCount[event.ordinal()][i];
+				if (count == 0) continue;
+
+				long time = inputTime[event.ordinal()][i];
+				Log.debug(TAG, modules[i].getClass().getSimpleName() + " " + event + ": " + count + " events, "
+						+ time / 1000 + " us total, " + time / count + " ns average");
+			}
+		}
+	}
 }
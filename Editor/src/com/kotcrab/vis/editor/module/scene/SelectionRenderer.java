@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ImmediateModeRenderer20;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Draws outlines of selected objects using single cached mesh. Geometry is rebuilt only when selection, scene objects or
+ * camera cached area changes, objects outside of cached area are culled. Selections larger than given limit are drawn as
+ * one box around whole selection.
+ */
+class SelectionRenderer {
+	/** Size of cached area, relative to camera visible area. Panning inside it doesn't require geometry rebuild */
+	private static final float CACHE_AREA_SCALE = 2;
+
+	private static final int VERTEX_SIZE = 4;
+	private static final float OUTLINE_COLOR = Color.WHITE.toFloatBits();
+
+	private EditorScene scene;
+
+	private ShaderProgram shader;
+	private Mesh mesh;
+	private float[] vertices = new float[0];
+	private int vertexCount;
+
+	private Rectangle cachedArea = new Rectangle();
+	private Rectangle bounds = new Rectangle();
+	private Rectangle selectionBounds = new Rectangle();
+
+	private long cachedSceneVersion = -1;
+	private long cachedSelectionVersion = -1;
+	private int cachedAggregateLimit = -1;
+	private long selectionVersion;
+
+	public SelectionRenderer (EditorScene scene) {
+		this.scene = scene;
+	}
+
+	/** Must be called every time objects are added or removed from selection */
+	public void selectionChanged () {
+		selectionVersion++;
+	}
+
+	/**
+	 * @param aggregateLimit if selection has more objects than this, only one box around whole selection is drawn
+	 */
+	public void render (Array<Object2d> selection, Matrix4 combined, Rectangle visibleArea, int aggregateLimit) {
+		if (selection.size == 0) return;
+
+		if (cachedSceneVersion != scene.getVersion() || cachedSelectionVersion != selectionVersion
+				|| cachedAggregateLimit != aggregateLimit || contains(cachedArea, visibleArea) == false)
+			rebuildGeometry(selection, visibleArea, aggregateLimit);
+
+		if (vertexCount == 0) return;
+
+		if (shader == null) shader = ImmediateModeRenderer20.createDefaultShader(false, true, 0);
+
+		shader.begin();
+		shader.setUniformMatrix("u_projModelView", combined);
+		mesh.render(shader, GL20.GL_LINES, 0, vertexCount);
+		shader.end();
+	}
+
+	private void rebuildGeometry (Array<Object2d> selection, Rectangle visibleArea, int aggregateLimit) {
+		float padX = visibleArea.width * (CACHE_AREA_SCALE - 1) / 2;
+		float padY = visibleArea.height * (CACHE_AREA_SCALE - 1) / 2;
+		cachedArea.set(visibleArea.x - padX, visibleArea.y - padY, visibleArea.width + padX * 2, visibleArea.height + padY * 2);
+		cachedSceneVersion = scene.getVersion();
+		cachedSelectionVersion = selectionVersion;
+		cachedAggregateLimit = aggregateLimit;
+
+		vertexCount = 0;
+
+		if (selection.size > aggregateLimit) {
+			selection.first().getBoundingRectangle(selectionBounds);
+			for (int i = 1; i < selection.size; i++)
+				selectionBounds.merge(selection.get(i).getBoundingRectangle(bounds));
+
+			ensureCapacity(8);
+			addRect(selectionBounds);
+		} else {
+			ensureCapacity(selection.size * 8);
+
+			for (int i = 0; i < selection.size; i++) {
+				Rectangle objectBounds = selection.get(i).getBoundingRectangle(bounds);
+				if (objectBounds.overlaps(cachedArea)) addRect(objectBounds);
+			}
+		}
+
+		mesh.setVertices(vertices, 0, vertexCount * VERTEX_SIZE);
+	}
+
+	private void addRect (Rectangle rect) {
+		float x1 = rect.x, y1 = rect.y;
+		float x2 = rect.x + rect.width, y2 = rect.y + rect.height;
+
+		addLine(x1, y1, x2, y1);
+		addLine(x2, y1, x2, y2);
+		addLine(x2, y2, x1, y2);
+		addLine(x1, y2, x1, y1);
+	}
+
+	private void addLine (float x1, float y1, float x2, float y2) {
+		addVertex(x1, y1);
+		addVertex(x2, y2);
+	}
+
+	private void addVertex (float x, float y) {
+		int offset = vertexCount * VERTEX_SIZE;
+		vertices[offset] = x;
+		vertices[offset + 1] = y;
+		vertices[offset + 2] = 0;
+		vertices[offset + 3] = OUTLINE_COLOR;
+		vertexCount++;
+	}
+
+	private void ensureCapacity (int requiredVertices) {
+		if (mesh != null && mesh.getMaxVertices() >= requiredVertices) return;
+
+		int maxVertices = Math.max(requiredVertices, mesh == null ? 0 : mesh.getMaxVertices() * 2);
+		if (mesh != null) mesh.dispose();
+
+		mesh = new Mesh(false, maxVertices, 0, new VertexAttribute(Usage.Position, 3, ShaderProgram.POSITION_ATTRIBUTE),
+				new VertexAttribute(Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE));
+		vertices = new float[maxVertices * VERTEX_SIZE];
+	}
+
+	private boolean contains (Rectangle outer, Rectangle inner) {
+		return inner.x >= outer.x && inner.y >= outer.y
+				&& inner.x + inner.width <= outer.x + outer.width && inner.y + inner.height <= outer.y + outer.height;
+	}
+
+	/** Releases GL resources and cached geometry, they will be recreated when needed */
+	public void dispose () {
+		if (shader != null) shader.dispose();
+		if (mesh != null) mesh.dispose();
+		shader = null;
+		mesh = null;
+		vertices = new float[0];
+		vertexCount = 0;
+		cachedSceneVersion = -1;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntSet;
+
+/**
+ * Snaps dragged selection to grid and to edges of nearby objects. Candidate objects are found by querying spatial index with
+ * thin strips around selection edges, so cost depends on number of objects near selection, not on scene size.
+ */
+class SnapEngine {
+	private EditorScene scene;
+
+	/** Bounds of whole selection at the moment dragging started */
+	private Rectangle startBounds = new Rectangle();
+	private IntSet selectedHandles = new IntSet();
+
+	private Rectangle queryArea = new Rectangle();
+	private Rectangle objectBounds = new Rectangle();
+	private Array<Object2d> queryResult = new Array<>();
+
+	private float bestDistance;
+
+	public SnapEngine (EditorScene scene) {
+		this.scene = scene;
+	}
+
+	/** Must be called before dragging of given selection starts, selected objects are never used as snap targets */
+	public void begin (Array<Object2d> selection) {
+		selectedHandles.clear();
+
+		for (int i = 0; i < selection.size; i++) {
+			Object2d object = selection.get(i);
+			selectedHandles.add(object.getHandle());
+
+			if (i == 0)
+				object.getBoundingRectangle(startBounds);
+			else
+				startBounds.merge(object.getBoundingRectangle(objectBounds));
+		}
+	}
+
+	/** Releases references to scene objects */
+	public void end () {
+		selectedHandles.clear();
+		queryResult.clear();
+	}
+
+	/**
+	 * Calculates snapped offset of selection. Each axis is snapped independently to the closest target.
+	 * @param offsetX offset of selection from position it had when dragging started
+	 * @param offsetY offset of selection from position it had when dragging started
+	 * @param radius max distance to snap target in world units
+	 * @param gridSize size of grid, 0 disables snapping to grid
+	 * @param snapToObjects if true selection is snapped to edges of nearby objects
+	 * @param out vector where snapped offset is stored
+	 * @return provided out vector
+	 */
+	public Vector2 snap (float offsetX, float offsetY, float radius, int gridSize, boolean snapToObjects, Vector2 out) {
+		float left = startBounds.x + offsetX;
+		float right = left + startBounds.width;
+		float bottom = startBounds.y + offsetY;
+		float top = bottom + startBounds.height;
+
+		out.x = offsetX + snapAxis(left, right, bottom, top, radius, gridSize, snapToObjects, true);
+		out.y = offsetY + snapAxis(bottom, top, left, right, radius, gridSize, snapToObjects, false);
+		return out;
+	}
+
+	/**
+	 * @param min selection edge with lower coordinate on snapped axis
+	 * @param max selection edge with higher coordinate on snapped axis
+	 * @param crossMin selection edge with lower coordinate on the other axis
+	 * @param crossMax selection edge with higher coordinate on the other axis
+	 * @return correction that must be added to offset on snapped axis, 0 if there is no target in range
+	 */
+	private float snapAxis (float min, float max, float crossMin, float crossMax, float radius, int gridSize, boolean snapToObjects, boolean xAxis) {
+		bestDistance = Float.MAX_VALUE;
+
+		if (gridSize > 0) {
+			test(min, Math.round(min / gridSize) * (float) gridSize, radius);
+			test(max, Math.round(max / gridSize) * (float) gridSize, radius);
+		}
+
+		if (snapToObjects) {
+			snapToObjects(min, crossMin, crossMax, radius, xAxis);
+			snapToObjects(max, crossMin, crossMax, radius, xAxis);
+		}
+
+		return bestDistance == Float.MAX_VALUE ? 0 : bestDistance;
+	}
+
+	private void snapToObjects (float edge, float crossMin, float crossMax, float radius, boolean xAxis) {
+		if (xAxis)
+			queryArea.set(edge - radius, crossMin - radius, radius * 2, crossMax - crossMin + radius * 2);
+		else
+			queryArea.set(crossMin - radius, edge - radius, crossMax - crossMin + radius * 2, radius * 2);
+
+		queryResult.clear();
+		scene.findObjects(queryArea, queryResult);
+
+		for (int i = 0; i < queryResult.size; i++) {
+			Object2d object = queryResult.get(i);
+			if (selectedHandles.contains(object.getHandle())) continue;
+
+			Rectangle bounds = object.getBoundingRectangle(objectBounds);
+
+			if (xAxis) {
+				test(edge, bounds.x, radius);
+				test(edge, bounds.x + bounds.width, radius);
+			} else {
+				test(edge, bounds.y, radius);
+				test(edge, bounds.y + bounds.height, radius);
+			}
+		}
+
+		queryResult.clear();
+	}
+
+	private void test (float edge, float target, float radius) {
+		float distance = target - edge;
+		if (Math.abs(distance) <= radius && Math.abs(distance) < Math.abs(bestDistance)) bestDistance = distance;
+	}
+}
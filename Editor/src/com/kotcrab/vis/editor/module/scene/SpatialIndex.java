@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Uniform grid of scene objects bounds, allows to find objects overlapping some area without scanning whole scene. Index does not
+ * track object changes by itself, {@link #update(Object2d)} must be called after object bounds has changed.
+ */
+public class SpatialIndex {
+	public static final int CELL_SIZE = 256;
+	/** Objects that would occupy more cells than that are not stored in grid but checked during every query */
+	private static final int MAX_OBJECT_CELLS = 64;
+
+	private LongMap<Array<Entry>> cells = new LongMap<>();
+	private IdentityMap<Object2d, Entry> entries = new IdentityMap<>();
+	private Array<Entry> largeEntries = new Array<>();
+
+	private int queryId;
+
+	public void update (Object2d object) {
+		Entry entry = entries.get(object);
+
+		if (entry == null) {
+			entry = new Entry(object);
+			entries.put(object, entry);
+		} else
+			removeFromCells(entry);
+
+		Rectangle bounds = object.getBoundingRectangle(entry.bounds);
+		entry.minX = toCell(bounds.x);
+		entry.minY = toCell(bounds.y);
+		entry.maxX = toCell(bounds.x + bounds.width);
+		entry.maxY = toCell(bounds.y + bounds.height);
+
+		addToCells(entry);
+	}
+
+	public void remove (Object2d object) {
+		Entry entry = entries.remove(object);
+		if (entry != null) removeFromCells(entry);
+	}
+
+	public void clear () {
+		cells.clear();
+		entries.clear();
+		largeEntries.clear();
+	}
+
+	public int size () {
+		return entries.size;
+	}
+
+	/**
+	 * Finds all objects which indexed bounds overlap given area, order of results is undefined.
+	 * @param result array that objects will be added to, it is not cleared
+	 * @return provided result array
+	 */
+	public Array<Object2d> query (Rectangle area, Array<Object2d> result) {
+		return query(area.x, area.y, area.x + area.width, area.y + area.height, false, result);
+	}
+
+	/**
+	 * Finds all objects which indexed bounds contain given point, order of results is undefined.
+	 * @param result array that objects will be added to, it is not cleared
+	 * @return provided result array
+	 */
+	public Array<Object2d> query (float x, float y, Array<Object2d> result) {
+		return query(x, y, x, y, true, result);
+	}
+
+	/** @param inclusive if true objects touching area edges are included, should be used for point queries */
+	private Array<Object2d> query (float x1, float y1, float x2, float y2, boolean inclusive, Array<Object2d> result) {
+		queryId++;
+
+		int minX = toCell(x1);
+		int minY = toCell(y1);
+		int maxX = toCell(x2);
+		int maxY = toCell(y2);
+
+		for (int cx = minX; cx <= maxX; cx++) {
+			for (int cy = minY; cy <= maxY; cy++) {
+				Array<Entry> cell = cells.get(key(cx, cy));
+				if (cell == null) continue;
+
+				for (int i = 0; i < cell.size; i++)
+					check(cell.get(i), x1, y1, x2, y2, inclusive, result);
+			}
+		}
+
+		for (int i = 0; i < largeEntries.size; i++)
+			check(largeEntries.get(i), x1, y1, x2, y2, inclusive, result);
+
+		return result;
+	}
+
+	private void check (Entry entry, float x1, float y1, float x2, float y2, boolean inclusive, Array<Object2d> result) {
+		if (entry.queryId == queryId) return;
+		entry.queryId = queryId;
+
+		Rectangle b = entry.bounds;
+
+		if (inclusive) {
+			if (b.x <= x2 && b.x + b.width >= x1 && b.y <= y2 && b.y + b.height >= y1) result.add(entry.object);
+		} else {
+			if (b.x < x2 && b.x + b.width > x1 && b.y < y2 && b.y + b.height > y1) result.add(entry.object);
+		}
+	}
+
+	private void addToCells (Entry entry) {
+		if (isLarge(entry)) {
+			largeEntries.add(entry);
+			return;
+		}
+
+		for (int cx = entry.minX; cx <= entry.maxX; cx++) {
+			for (int cy = entry.minY; cy <= entry.maxY; cy++) {
+				long key = key(cx, cy);
+				Array<Entry> cell = cells.get(key);
+
+				if (cell == null) {
+					cell = new Array<>(false, 8);
+					cells.put(key, cell);
+				}
+
+				cell.add(entry);
+			}
+		}
+	}
+
+	private void removeFromCells (Entry entry) {
+		if (isLarge(entry)) {
+			largeEntries.removeValue(entry, true);
+			return;
+		}
+
+		for (int cx = entry.minX; cx <= entry.maxX; cx++) {
+			for (int cy = entry.minY; cy <= entry.maxY; cy++) {
+				long key = key(cx, cy);
+				Array<Entry> cell = cells.get(key);
+				if (cell == null) continue;
+
+				cell.removeValue(entry, true);
+				if (cell.size == 0) cells.remove(key);
+			}
+		}
+	}
+
+	private boolean isLarge (Entry entry) {
+		return (long) (entry.maxX - entry.minX + 1) * (entry.maxY - entry.minY + 1) > MAX_OBJECT_CELLS;
+	}
+
+	private static int toCell (float value) {
+		return (int) Math.floor(value / CELL_SIZE);
+	}
+
+	private static long key (int cellX, int cellY) {
+		return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+	}
+
+	private static class Entry {
+		final Object2d object;
+		final Rectangle bounds = new Rectangle();
+
+		int minX, minY, maxX, maxY;
+		int queryId;
+
+		public Entry (Object2d object) {
+			this.object = object;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.utils.Array;
+
+/** Sets same tint to many objects, undo restores tint that each object had before */
+public class TintAction implements CompactableAction {
+	private EditorScene scene;
+	private Array<Object2d> objects;
+	private int[] before;
+	private int tint;
+
+	/** Used by Kryo */
+	private TintAction () {
+	}
+
+	/** @param tint new tint in RGBA8888 format */
+	public TintAction (EditorScene scene, Array<? extends Object2d> objects, int tint) {
+		this.scene = scene;
+		this.tint = tint;
+		this.objects = new Array<>(objects.size);
+		this.objects.addAll(objects);
+
+		before = new int[objects.size];
+		for (int i = 0; i < objects.size; i++)
+			before[i] = objects.get(i).getTint();
+	}
+
+	@Override
+	public void execute () {
+		for (Object2d object : objects) {
+			object.setTint(tint);
+			scene.markChanged(object, SceneChangeListener.APPEARANCE);
+		}
+	}
+
+	@Override
+	public void undo () {
+		for (int i = 0; i < objects.size; i++) {
+			Object2d object = objects.get(i);
+			object.setTint(before[i]);
+			scene.markChanged(object, SceneChangeListener.APPEARANCE);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Records transform of many objects before and after some change as two float arrays, so whole drag gesture or burst of
+ * property edits is stored as single action. Create action before changing objects and call {@link #finish()} after changes
+ * were made, then add it to {@link UndoModule}.
+ */
+public class TransformAction implements CompactableAction {
+	/** Newer coalescing action that came in this time (in ms) after previous one is merged into it */
+	private static final long COALESCE_TIME = 1000;
+
+	private static final int STRIDE = 9;
+
+	private EditorScene scene;
+	private Array<Object2d> objects;
+	private float[] before;
+	private float[] after;
+
+	private transient boolean coalescing;
+	private transient long lastChangeTime;
+
+	/** Used by Kryo */
+	private TransformAction () {
+	}
+
+	/**
+	 * Creates new transform action and saves current transform of objects.
+	 * @param coalescing if true, this action can be merged with previous coalescing action for the same objects if they were
+	 * created shortly one after another, used for property edits
+	 */
+	public TransformAction (EditorScene scene, Array<? extends Object2d> objects, boolean coalescing) {
+		this.scene = scene;
+		this.coalescing = coalescing;
+		this.objects = new Array<>(objects.size);
+		this.objects.addAll(objects);
+
+		before = new float[objects.size * STRIDE];
+		save(before);
+	}
+
+	/**
+	 * Saves current transform of objects as transform after change.
+	 * @return true if transform of any object was changed, if false action shouldn't be added to undo module
+	 */
+	public boolean finish () {
+		after = new float[before.length];
+		save(after);
+		lastChangeTime = TimeUtils.millis();
+
+		for (int i = 0; i < before.length; i++)
+			if (before[i] != after[i]) return true;
+
+		return false;
+	}
+
+	/**
+	 * Merges newer action into this one if both are coalescing, they were finished in short time and they are for the same
+	 * objects. After merge this action will restore state from before this action and redo state from after newer action.
+	 * @return true if action was merged
+	 */
+	public boolean merge (TransformAction newer) {
+		if (coalescing == false || newer.coalescing == false) return false;
+		if (newer.lastChangeTime - lastChangeTime > COALESCE_TIME) return false;
+		if (objects.size != newer.objects.size) return false;
+
+		for (int i = 0; i < objects.size; i++)
+			if (objects.get(i) != newer.objects.get(i)) return false;
+
+		after = newer.after;
+		lastChangeTime = newer.lastChangeTime;
+		return true;
+	}
+
+	@Override
+	public void execute () {
+		load(after);
+	}
+
+	@Override
+	public void undo () {
+		load(before);
+	}
+
+	private void save (float[] data) {
+		for (int i = 0, offset = 0; i < objects.size; i++, offset += STRIDE) {
+			Object2d object = objects.get(i);
+			data[offset] = object.getX();
+			data[offset + 1] = object.getY();
+			data[offset + 2] = object.getOriginX();
+			data[offset + 3] = object.getOriginY();
+			data[offset + 4] = object.getScaleX();
+			data[offset + 5] = object.getScaleY();
+			data[offset + 6] = object.getRotation();
+			data[offset + 7] = object.isFlipX() ? 1 : 0;
+			data[offset + 8] = object.isFlipY() ? 1 : 0;
+		}
+	}
+
+	private void load (float[] data) {
+		for (int i = 0, offset = 0; i < objects.size; i++, offset += STRIDE) {
+			Object2d object = objects.get(i);
+			object.setPosition(data[offset], data[offset + 1]);
+			object.setOrigin(data[offset + 2], data[offset + 3]);
+			object.setScale(data[offset + 4], data[offset + 5]);
+			object.setRotation(data[offset + 6]);
+			object.setFlip(data[offset + 7] != 0, data[offset + 8] != 0);
+			scene.updateObjectBounds(object);
+		}
+	}
+}
@@ -21,18 +21,51 @@ package com.kotcrab.vis.editor.module.scene;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.InputListener;
 import com.badlogic.gdx.utils.Array;
 import com.kotcrab.vis.editor.App;
 import com.kotcrab.vis.editor.event.StatusBarEvent;
+import com.kotcrab.vis.editor.module.project.FileAccessModule;
+import com.kotcrab.vis.editor.module.project.SceneIOModule;
+import com.kotcrab.vis.editor.util.Log;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Undo and redo support for scene. History is unlimited but its memory usage is bounded: only newest actions are kept in their
+ * original form, older {@link CompactableAction}s are serialized to compact byte form, and when serialized actions are using
+ * too much memory, oldest of them are moved to history file in project modules folder.
+ */
 public class UndoModule extends SceneModule {
+	/** Number of newest actions that are always kept in their original form */
+	private static final int LIVE_ACTIONS = 30;
+	/** Maximum size of serialized actions kept in memory, older serialized actions are moved to history file */
+	private static final int MAX_COMPACTED_MEMORY = 8 * 1024 * 1024;
+
 	private InputModule input;
+	private FileAccessModule fileAccess;
+
+	private UndoSerializer serializer;
 
 	private Array<UndoableAction> undoList;
 	private Array<UndoableAction> redoList;
 
+	/** Actions in undo list before this index were already checked for compacting */
+	private int compactIndex;
+	/** Actions in undo list before this index were already checked for moving to history file */
+	private int spillIndex;
+
+	private long compactedMemory;
+	private long spilledSize;
+
+	private File historyFile;
+	private RandomAccessFile history;
+	private boolean historyFileFailed;
+
 	private boolean tabActive;
 
 	@Override
@@ -44,10 +77,30 @@ public class UndoModule extends SceneModule {
 		input.addListener(new UndoInputListener());
 	}
 
+	@Override
+	public void init () {
+		fileAccess = projectContainer.get(FileAccessModule.class);
+		serializer = new UndoSerializer(projectContainer.get(SceneIOModule.class), scene);
+	}
 
 	public void undo () {
+		//actions use z-indexes of objects, so they can only be applied to fully loaded scene
+		scene.finishLoading();
+
 		if (undoList.size > 0) {
 			UndoableAction action = undoList.pop();
+			compactIndex = Math.min(compactIndex, undoList.size);
+			spillIndex = Math.min(spillIndex, undoList.size);
+
+			if (action instanceof CompactedAction) {
+				action = restore((CompactedAction) action);
+
+				if (action == null) {
+					App.eventBus.post(new StatusBarEvent("Undo history is damaged, can't undo more!"));
+					return;
+				}
+			}
+
 			action.undo();
 			redoList.add(action);
 		} else
@@ -55,23 +108,203 @@ public class UndoModule extends SceneModule {
 	}
 
 	public void redo () {
+		scene.finishLoading();
+
 		if (redoList.size > 0) {
 			UndoableAction action = redoList.pop();
+
+			if (action instanceof CompactedAction) {
+				action = restore((CompactedAction) action);
+
+				if (action == null) {
+					App.eventBus.post(new StatusBarEvent("Undo history is damaged, can't redo more!"));
+					return;
+				}
+			}
+
 			action.execute();
 			undoList.add(action);
+			compact();
 		} else
 			App.eventBus.post(new StatusBarEvent("Can't redo more!"));
 	}
 
 	public void execute (UndoableAction action) {
+		scene.finishLoading();
 		action.execute();
 		add(action);
 	}
 
 	public void add (UndoableAction action) {
-		undoList.add(action);
 		redoList.clear();
 		sceneTab.setDirty(true);
+
+		if (action instanceof TransformAction && undoList.size > 0 && undoList.peek() instanceof TransformAction) {
+			if (((TransformAction) undoList.peek()).merge((TransformAction) action)) return;
+		}
+
+		undoList.add(action);
+		compact();
+	}
+
+	/** @return size in bytes of serialized actions that are kept in memory */
+	public long getCompactedMemoryUsage () {
+		return compactedMemory;
+	}
+
+	/** @return size in bytes of serialized actions that were moved to history file */
+	public long getSpilledSize () {
+		return spilledSize;
+	}
+
+	private void compact () {
+		while (undoList.size - compactIndex > LIVE_ACTIONS) {
+			UndoableAction action = undoList.get(compactIndex);
+
+			if (isCompactable(action)) {
+				CompactedAction compacted = new CompactedAction(serializer.write(action));
+				undoList.set(compactIndex, compacted);
+				compactedMemory += compacted.length;
+			}
+
+			compactIndex++;
+		}
+
+		if (compactedMemory > MAX_COMPACTED_MEMORY) {
+			while (compactedMemory > MAX_COMPACTED_MEMORY / 2 && spillIndex < compactIndex) {
+				UndoableAction action = undoList.get(spillIndex);
+				if (action instanceof CompactedAction && spill((CompactedAction) action) == false) break;
+				spillIndex++;
+			}
+
+			serializer.purge();
+		}
+	}
+
+	/** @return false if some action couldn't be compacted */
+	private boolean compactAll (Array<UndoableAction> actions) {
+		for (int i = 0; i < actions.size; i++) {
+			UndoableAction action = actions.get(i);
+			if (action instanceof CompactedAction) continue;
+			if (isCompactable(action) == false) return false;
+
+			CompactedAction compacted = new CompactedAction(serializer.write(action));
+			actions.set(i, compacted);
+			compactedMemory += compacted.length;
+		}
+
+		return true;
+	}
+
+	private boolean isCompactable (UndoableAction action) {
+		if (action instanceof UndoableActionGroup) return ((UndoableActionGroup) action).isCompactable();
+		return action instanceof CompactableAction;
+	}
+
+	private boolean spill (CompactedAction action) {
+		if (historyFileFailed) return false;
+
+		try {
+			if (history == null) openHistoryFile();
+
+			long offset = history.length();
+			history.seek(offset);
+			history.write(action.data);
+
+			action.data = null;
+			action.offset = offset;
+			compactedMemory -= action.length;
+			spilledSize += action.length;
+			return true;
+		} catch (IOException e) {
+			Log.exception(e);
+			historyFileFailed = true;
+			return false;
+		}
+	}
+
+	private UndoableAction restore (CompactedAction action) {
+		try {
+			byte[] data = action.data;
+
+			if (data == null) {
+				//spilled actions are always restored in reverse order so file can be truncated
+				data = new byte[action.length];
+				history.seek(action.offset);
+				history.readFully(data);
+				history.setLength(action.offset);
+				spilledSize -= action.length;
+			} else
+				compactedMemory -= action.length;
+
+			return serializer.read(data);
+		} catch (IOException e) {
+			Log.exception(e);
+			clearHistory();
+			return null;
+		}
+	}
+
+	private void openHistoryFile () throws IOException {
+		FileHandle folder = fileAccess.getModuleFolder(".undoHistory");
+		folder.mkdirs();
+
+		historyFile = File.createTempFile("scene", ".history", folder.file());
+		historyFile.deleteOnExit();
+		history = new RandomAccessFile(historyFile, "rw");
+	}
+
+	private void clearHistory () {
+		undoList.clear();
+		redoList.clear();
+		compactIndex = 0;
+		spillIndex = 0;
+		compactedMemory = 0;
+		spilledSize = 0;
+		serializer.clear();
+		closeHistoryFile();
+	}
+
+	private void closeHistoryFile () {
+		if (history == null) return;
+
+		try {
+			history.close();
+		} catch (IOException e) {
+			Log.exception(e);
+		}
+
+		historyFile.delete();
+		history = null;
+		historyFile = null;
+	}
+
+	@Override
+	public void dispose () {
+		closeHistoryFile();
+	}
+
+	@Override
+	public void hibernate () {
+		//scene objects will be replaced by new instances, so actions can't keep direct references to them
+		if (compactAll(undoList) == false || compactAll(redoList) == false) {
+			Log.warn("Undo history contains actions that can't be compacted, history of hibernated scene was cleared");
+			clearHistory();
+			return;
+		}
+
+		compactIndex = undoList.size;
+
+		while (spillIndex < undoList.size) {
+			if (spill((CompactedAction) undoList.get(spillIndex)) == false) break;
+			spillIndex++;
+		}
+	}
+
+	@Override
+	public void wakeUp () {
+		for (EditorSceneObject object : scene.getObjects())
+			if (object instanceof Object2d) serializer.register((Object2d) object);
 	}
 
 	@Override
@@ -84,6 +317,28 @@ public class UndoModule extends SceneModule {
 		tabActive = true;
 	}
 
+	/** Serialized action, data is null when action was moved to history file */
+	private static class CompactedAction implements UndoableAction {
+		byte[] data;
+		int length;
+		long offset;
+
+		public CompactedAction (byte[] data) {
+			this.data = data;
+			this.length = data.length;
+		}
+
+		@Override
+		public void execute () {
+			throw new UnsupportedOperationException("Compacted action must be restored before use");
+		}
+
+		@Override
+		public void undo () {
+			throw new UnsupportedOperationException("Compacted action must be restored before use");
+		}
+	}
+
 	private class UndoInputListener extends InputListener {
 		public boolean keyDown (InputEvent event, int keycode) {
 			if (tabActive) {
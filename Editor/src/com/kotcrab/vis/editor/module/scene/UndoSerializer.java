@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.utils.IntMap;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import com.kotcrab.vis.editor.module.project.SceneIOModule;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Converts {@link CompactableAction}s to bytes and back. Scene objects are written as references using their handle, object data
+ * is only written when object isn't in scene at the time of serialization. When action is read, object that is still alive
+ * (it's in scene or referenced by some not serialized action) is reused, otherwise it is recreated from saved data, so object
+ * identity is preserved between actions.
+ */
+class UndoSerializer {
+	private SceneIOModule sceneIO;
+	private EditorScene scene;
+
+	private Kryo kryo;
+	private Output output;
+
+	private IntMap<WeakReference<Object2d>> objects = new IntMap<>();
+
+	public UndoSerializer (SceneIOModule sceneIO, EditorScene scene) {
+		this.sceneIO = sceneIO;
+		this.scene = scene;
+
+		output = new Output(4096, -1);
+
+		kryo = sceneIO.createKryo();
+		kryo.setDefaultSerializer(FieldSerializer.class);
+		kryo.register(EditorScene.class, new SceneReferenceSerializer());
+		kryo.register(Object2d.class, new Object2dReferenceSerializer());
+	}
+
+	public byte[] write (UndoableAction action) {
+		output.clear();
+		kryo.writeClassAndObject(output, action);
+		return output.toBytes();
+	}
+
+	public UndoableAction read (byte[] data) {
+		return (UndoableAction) kryo.readClassAndObject(new Input(data));
+	}
+
+	/** Registers object that replaced old object with same handle, for example after scene was reloaded */
+	public void register (Object2d object) {
+		objects.put(object.getHandle(), new WeakReference<>(object));
+	}
+
+	/** Removes handles of objects that were garbage collected */
+	public void purge () {
+		IntMap.Keys keys = objects.keys();
+
+		while (keys.hasNext) {
+			if (objects.get(keys.next()).get() == null) keys.remove();
+		}
+	}
+
+	public void clear () {
+		objects.clear();
+	}
+
+	/** Scene is never serialized, actions always get scene that they belong to */
+	private class SceneReferenceSerializer extends Serializer<EditorScene> {
+		@Override
+		public void write (Kryo kryo, Output output, EditorScene object) {
+		}
+
+		@Override
+		public EditorScene read (Kryo kryo, Input input, Class<EditorScene> type) {
+			return scene;
+		}
+	}
+
+	private class Object2dReferenceSerializer extends Serializer<Object2d> {
+		@Override
+		public void write (Kryo kryo, Output output, Object2d object) {
+			if (object.getHandle() == 0) throw new IllegalStateException("Object was never added to scene");
+
+			objects.put(object.getHandle(), new WeakReference<>(object));
+			output.writeInt(object.getHandle(), true);
+
+			boolean inScene = scene.contains(object);
+			output.writeBoolean(inScene == false);
+
+			if (inScene == false) object.writeData(output);
+		}
+
+		@Override
+		public Object2d read (Kryo kryo, Input input, Class<Object2d> type) {
+			int handle = input.readInt(true);
+			boolean hasData = input.readBoolean();
+
+			WeakReference<Object2d> ref = objects.get(handle);
+			Object2d object = ref == null ? null : ref.get();
+			boolean recreate = object == null;
+
+			if (recreate) {
+				if (hasData == false)
+					throw new IllegalStateException("Object referenced by undoable action no longer exists, handle: " + handle);
+
+				object = kryo.newInstance(Object2d.class);
+				object.setHandle(handle);
+			}
+
+			kryo.reference(object);
+
+			if (hasData) {
+				//if object is still alive its state is the same as saved one, because removed objects are never modified
+				Object2d data = recreate ? object : new Object2d();
+				data.readData(input);
+
+				if (recreate) {
+					sceneIO.prepareObjectAfterLoad(object);
+					objects.put(handle, new WeakReference<>(object));
+				}
+			}
+
+			return object;
+		}
+	}
+}
@@ -21,7 +21,7 @@ package com.kotcrab.vis.editor.module.scene;
 
 import com.badlogic.gdx.utils.Array;
 
-public class UndoableActionGroup implements UndoableAction {
+public class UndoableActionGroup implements CompactableAction {
 	private Array<UndoableAction> actions = new Array<>();
 
 	private boolean finalized;
@@ -56,6 +56,18 @@ public class UndoableActionGroup implements UndoableAction {
 		finalized = true;
 	}
 
+	/** @return true if all actions in this group can be compacted by {@link UndoModule} */
+	public boolean isCompactable () {
+		for (UndoableAction action : actions) {
+			if (action instanceof UndoableActionGroup) {
+				if (((UndoableActionGroup) action).isCompactable() == false) return false;
+			} else if (action instanceof CompactableAction == false)
+				return false;
+		}
+
+		return true;
+	}
+
 	public void execute (UndoableAction action) {
 		if (finalized) throw new IllegalStateException("Cannot add action to finalized group");
 
@@ -21,14 +21,21 @@ package com.kotcrab.vis.editor.module.scene;
 
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
 
+import java.util.EnumSet;
+
 public class ZIndexManipulator extends SceneModule {
 	private UndoModule undoModule;
 	private ObjectManipulatorModule objectManipulator;
 
 	private UndoableActionGroup actionGroup;
 
+	private Array<Object2d> candidates = new Array<>();
+	private Rectangle bounds = new Rectangle();
+	private Array<Object2d> overlapping = new Array<>();
+
 	@Override
 	public void init () {
 		undoModule = sceneContainer.get(UndoModule.class);
@@ -36,56 +43,70 @@ public class ZIndexManipulator extends SceneModule {
 	}
 
 	private void moveSelectedObjects (boolean up) {
-		actionGroup = new UndoableActionGroup();
+		undoModule.add(moveObjects(objectManipulator.getSelectedObjects(), up));
+	}
 
-		Array<Object2d> selectedObjects = objectManipulator.getSelectedObjects();
+	/**
+	 * Moves objects above (or below) nearest overlapping object
+	 * @return already executed action group that can undo this move
+	 */
+	public UndoableActionGroup moveObjects (Array<Object2d> objects, boolean up) {
+		scene.finishLoading();
+		actionGroup = new UndoableActionGroup();
 
-		for (Object2d object : selectedObjects) {
+		for (Object2d object : objects) {
 			moveObject(object, getOverlappingObjects(object, up), up);
 		}
 
 		actionGroup.finalizeGroup();
-		undoModule.add(actionGroup);
+		return actionGroup;
 	}
 
 	private void moveObject (Object2d object, Array<Object2d> overlappingObjects, boolean up) {
-
 		if (overlappingObjects.size > 0) {
-			int currentIndex = scene.objects.indexOf(object, true);
-			int targetIndex = scene.objects.indexOf(overlappingObjects.first(), true);
+			int currentIndex = scene.indexOf(object);
+			int targetIndex = scene.indexOf(overlappingObjects.first());
 
 			for (Object2d obj : overlappingObjects) {
-				int sceneIndex = scene.objects.indexOf(obj, true);
+				int sceneIndex = scene.indexOf(obj);
 				if (up ? sceneIndex < targetIndex : sceneIndex > targetIndex)
 					targetIndex = sceneIndex;
 			}
 
-			actionGroup.execute(new ZIndexChangeAction(object, currentIndex, targetIndex));
+			actionGroup.execute(new ZIndexChangeAction(scene, object, currentIndex, targetIndex));
 		}
 	}
 
 	private Array<Object2d> getOverlappingObjects (Object2d object, boolean up) {
-		Array<Object2d> overlapping = new Array<>();
-		int objectIndex = scene.objects.indexOf(object, true);
+		overlapping.clear();
+		candidates.clear();
 
-		for (EditorSceneObject o : scene.objects) {
-			if (o instanceof Object2d) {
-				Object2d sceneObject = (Object2d) o;
-				int sceneObjectIndex = scene.objects.indexOf(sceneObject, true);
+		int objectIndex = scene.indexOf(object);
+		scene.findObjects(object.getBoundingRectangle(bounds), candidates);
 
-				if (object != sceneObject &&
-						object.sprite.getBoundingRectangle().overlaps(sceneObject.sprite.getBoundingRectangle())) {
+		for (Object2d sceneObject : candidates) {
+			if (object == sceneObject) continue;
 
-					if (up ? (objectIndex < sceneObjectIndex) : (objectIndex > sceneObjectIndex))
-						overlapping.add(sceneObject);
-
-				}
-			}
+			int sceneObjectIndex = scene.indexOf(sceneObject);
+			if (up ? (objectIndex < sceneObjectIndex) : (objectIndex > sceneObjectIndex))
+				overlapping.add(sceneObject);
 		}
 
 		return overlapping;
 	}
 
+	@Override
+	public void hibernate () {
+		candidates = new Array<>();
+		overlapping = new Array<>();
+		actionGroup = null;
+	}
+
+	@Override
+	public EnumSet<SceneInputEvent> getHandledInputEvents () {
+		return EnumSet.of(SceneInputEvent.KEY_DOWN);
+	}
+
 	@Override
 	public boolean keyDown (InputEvent event, int keycode) {
 		if (keycode == Keys.PAGE_UP) {
@@ -101,12 +122,18 @@ public class ZIndexManipulator extends SceneModule {
 		return false;
 	}
 
-	private class ZIndexChangeAction implements UndoableAction {
+	private static class ZIndexChangeAction implements CompactableAction {
+		private EditorScene scene;
 		private Object2d object;
 		private int currentIndex;
 		private int targetIndex;
 
-		public ZIndexChangeAction (Object2d object, int currentIndex, int targetIndex) {
+		/** Used by Kryo */
+		private ZIndexChangeAction () {
+		}
+
+		public ZIndexChangeAction (EditorScene scene, Object2d object, int currentIndex, int targetIndex) {
+			this.scene = scene;
 			this.object = object;
 			this.currentIndex = currentIndex;
 			this.targetIndex = targetIndex;
@@ -114,14 +141,12 @@ public class ZIndexManipulator extends SceneModule {
 
 		@Override
 		public void execute () {
-			scene.objects.removeIndex(currentIndex);
-			scene.objects.insert(targetIndex, object);
+			scene.moveObject(object, targetIndex);
 		}
 
 		@Override
 		public void undo () {
-			scene.objects.removeIndex(targetIndex);
-			scene.objects.insert(currentIndex, object);
+			scene.moveObject(object, currentIndex);
 		}
 	}
 }
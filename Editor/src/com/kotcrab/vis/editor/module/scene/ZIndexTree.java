@@ -0,0 +1,253 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.scene;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+
+/**
+ * Order statistic tree (implicit treap) holding scene objects in z-order. Finding object index, inserting object at index and
+ * removing object are O(log n), unlike {@link Array} where index lookup and reordering are O(n).
+ */
+public class ZIndexTree {
+	private IdentityMap<EditorSceneObject, Node> nodes = new IdentityMap<>();
+	private Node root;
+
+	private int seed = 0x2545F491;
+
+	private Node splitLeft;
+	private Node splitRight;
+
+	public int size () {
+		return size(root);
+	}
+
+	public boolean contains (EditorSceneObject object) {
+		return nodes.containsKey(object);
+	}
+
+	public void add (EditorSceneObject object) {
+		insert(size(), object);
+	}
+
+	public void insert (int index, EditorSceneObject object) {
+		if (index < 0 || index > size())
+			throw new IndexOutOfBoundsException("index can't be < 0 or > size: " + index + ", size: " + size());
+		if (nodes.containsKey(object)) throw new IllegalArgumentException("Object is already added to tree");
+
+		Node node = new Node(object, nextPriority());
+		nodes.put(object, node);
+
+		split(root, index);
+		Node right = splitRight;
+		root = merge(merge(splitLeft, node), right);
+		root.parent = null;
+	}
+
+	/** @return index that object had before removal or -1 if object wasn't in tree */
+	public int remove (EditorSceneObject object) {
+		Node node = nodes.remove(object);
+		if (node == null) return -1;
+
+		int index = indexOf(node);
+
+		Node parent = node.parent;
+		Node merged = merge(node.left, node.right);
+		if (merged != null) merged.parent = parent;
+
+		if (parent == null)
+			root = merged;
+		else {
+			if (parent.left == node)
+				parent.left = merged;
+			else
+				parent.right = merged;
+
+			for (Node n = parent; n != null; n = n.parent)
+				n.size--;
+		}
+
+		return index;
+	}
+
+	/** Moves object to new index, index is interpreted after object was removed from its current position */
+	public void move (EditorSceneObject object, int index) {
+		if (remove(object) == -1) throw new IllegalArgumentException("Object is not added to tree");
+		insert(index, object);
+	}
+
+	/** Puts new object in place of old one, keeping its index */
+	public void replace (EditorSceneObject oldObject, EditorSceneObject newObject) {
+		Node node = nodes.remove(oldObject);
+		if (node == null) throw new IllegalArgumentException("Object is not added to tree");
+		if (nodes.containsKey(newObject)) throw new IllegalArgumentException("Object is already added to tree");
+
+		node.object = newObject;
+		nodes.put(newObject, node);
+	}
+
+	/** @return index of object or -1 if object isn't in tree */
+	public int indexOf (EditorSceneObject object) {
+		Node node = nodes.get(object);
+		if (node == null) return -1;
+		return indexOf(node);
+	}
+
+	public EditorSceneObject get (int index) {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("index can't be < 0 or >= size: " + index + ", size: " + size());
+
+		Node node = root;
+
+		while (true) {
+			int leftSize = size(node.left);
+
+			if (index < leftSize)
+				node = node.left;
+			else if (index == leftSize)
+				return node.object;
+			else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	public void clear () {
+		nodes.clear();
+		root = null;
+	}
+
+	/** Clears provided array and adds all objects to it in z-order */
+	public void toArray (Array<EditorSceneObject> array) {
+		array.clear();
+		array.ensureCapacity(size());
+
+		Node node = root;
+		if (node == null) return;
+		while (node.left != null) node = node.left;
+
+		while (node != null) {
+			array.add(node.object);
+			node = successor(node);
+		}
+	}
+
+	private Node successor (Node node) {
+		if (node.right != null) {
+			node = node.right;
+			while (node.left != null) node = node.left;
+			return node;
+		}
+
+		while (node.parent != null && node.parent.right == node)
+			node = node.parent;
+
+		return node.parent;
+	}
+
+	private int indexOf (Node node) {
+		int index = size(node.left);
+
+		while (node.parent != null) {
+			if (node.parent.right == node) index += size(node.parent.left) + 1;
+			node = node.parent;
+		}
+
+		return index;
+	}
+
+	/** Splits tree so first count elements are in {@link #splitLeft} and rest is in {@link #splitRight} */
+	private void split (Node node, int count) {
+		if (node == null) {
+			splitLeft = null;
+			splitRight = null;
+			return;
+		}
+
+		if (size(node.left) < count) {
+			split(node.right, count - size(node.left) - 1);
+			node.right = splitLeft;
+			update(node);
+			splitLeft = node;
+		} else {
+			split(node.left, count);
+			node.left = splitRight;
+			update(node);
+			splitRight = node;
+		}
+
+		splitLeft = detach(splitLeft);
+		splitRight = detach(splitRight);
+	}
+
+	private Node merge (Node left, Node right) {
+		if (left == null) return right;
+		if (right == null) return left;
+
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			update(left);
+			return left;
+		} else {
+			right.left = merge(left, right.left);
+			update(right);
+			return right;
+		}
+	}
+
+	private Node detach (Node node) {
+		if (node != null) node.parent = null;
+		return node;
+	}
+
+	private void update (Node node) {
+		node.size = 1 + size(node.left) + size(node.right);
+		if (node.left != null) node.left.parent = node;
+		if (node.right != null) node.right.parent = node;
+	}
+
+	private int size (Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private int nextPriority () {
+		//xorshift, we don't need good randomness, just a well balanced tree
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		return seed;
+	}
+
+	private static class Node {
+		EditorSceneObject object;
+		int priority;
+		int size = 1;
+
+		Node left;
+		Node right;
+		Node parent;
+
+		public Node (EditorSceneObject object, int priority) {
+			this.object = object;
+			this.priority = priority;
+		}
+	}
+}
@@ -23,7 +23,6 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.InputListener;
@@ -36,9 +35,13 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Timer;
 import com.badlogic.gdx.utils.Timer.Task;
 import com.kotcrab.vis.editor.Assets;
+import com.kotcrab.vis.editor.module.scene.EditorScene;
+import com.kotcrab.vis.editor.module.scene.EditorSceneObject;
 import com.kotcrab.vis.editor.module.scene.Object2d;
-import com.kotcrab.vis.editor.ui.tab.Tab;
-import com.kotcrab.vis.editor.util.FieldUtils;
+import com.kotcrab.vis.editor.module.scene.SceneChangeListener;
+import com.kotcrab.vis.editor.module.scene.TintAction;
+import com.kotcrab.vis.editor.module.scene.TransformAction;
+import com.kotcrab.vis.editor.module.scene.UndoModule;
 import com.kotcrab.vis.ui.InputValidator;
 import com.kotcrab.vis.ui.VisTable;
 import com.kotcrab.vis.ui.VisUI;
@@ -52,7 +55,7 @@ import com.kotcrab.vis.ui.widget.color.ColorPickerAdapter;
 import com.kotcrab.vis.ui.widget.color.ColorPickerListener;
 import org.lwjgl.input.Keyboard;
 
-public class ObjectProperties extends VisTable {
+public class ObjectProperties extends VisTable implements SceneChangeListener {
 	private static final int FIELD_WIDTH = 70;
 
 	private VisValidableTextField idField;
@@ -69,17 +72,26 @@ public class ObjectProperties extends VisTable {
 	private ColorImage tint;
 
 	private Array<Object2d> objects;
+	private SelectionSummary summary = new SelectionSummary();
+	private boolean fieldsDirty;
+	/** True while values are set to fields, changes of fields made then aren't caused by user */
+	private boolean updatingFields;
+	private Color tintColor = new Color();
 
 	private ChangeListener sharedChangeListener;
 	private FieldFilter sharedFieldFilter;
 	private FieldValidator sharedFieldValidator;
-	private Tab parentTab;
+	private SceneTab parentTab;
+	private EditorScene scene;
+	private UndoModule undoModule;
 
 	private ColorPickerListener pickerListener;
 
-	public ObjectProperties (final ColorPicker picker, final Tab parentTab) {
+	public ObjectProperties (final ColorPicker picker, final SceneTab parentTab, final UndoModule undoModule) {
 		super(true);
 		this.parentTab = parentTab;
+		this.scene = parentTab.getScene();
+		this.undoModule = undoModule;
 
 		setBackground(VisUI.getSkin().getDrawable("window-bg"));
 		setTouchable(Touchable.enabled);
@@ -88,7 +100,15 @@ public class ObjectProperties extends VisTable {
 		sharedChangeListener = new ChangeListener() {
 			@Override
 			public void changed (ChangeEvent event, Actor actor) {
-				setValuesToSprite();
+				if (updatingFields) return;
+
+				if (actor instanceof InputField)
+					applyFieldValue((InputField) actor);
+				else if (actor == idField)
+					applyId();
+				else
+					applyFlip(actor == xFlipCheck);
+
 				parentTab.setDirty(true);
 			}
 		};
@@ -99,10 +119,7 @@ public class ObjectProperties extends VisTable {
 		pickerListener = new ColorPickerAdapter() {
 			@Override
 			public void finished (Color newColor) {
-				for (Object2d object : objects)
-					object.sprite.setColor(newColor);
-
-				parentTab.setDirty(true);
+				undoModule.execute(new TintAction(scene, objects, Color.rgba8888(newColor)));
 				tint.setColor(newColor);
 				picker.setListener(null);
 			}
@@ -138,28 +155,28 @@ public class ObjectProperties extends VisTable {
 
 		propertiesTable.add(new VisLabel("Position"));
 		propertiesTable.add(new VisLabel("X"));
-		propertiesTable.add(xField = new InputField()).width(FIELD_WIDTH);
+		propertiesTable.add(xField = new InputField(SelectionSummary.X)).width(FIELD_WIDTH);
 		propertiesTable.add(new VisLabel("Y"));
-		propertiesTable.add(yField = new InputField()).width(FIELD_WIDTH);
+		propertiesTable.add(yField = new InputField(SelectionSummary.Y)).width(FIELD_WIDTH);
 		propertiesTable.row();
 
 		propertiesTable.add(new VisLabel("Scale"));
 		propertiesTable.add(new VisLabel("X"));
-		propertiesTable.add(xScaleField = new InputField()).width(FIELD_WIDTH);
+		propertiesTable.add(xScaleField = new InputField(SelectionSummary.SCALE_X)).width(FIELD_WIDTH);
 		propertiesTable.add(new VisLabel("Y"));
-		propertiesTable.add(yScaleField = new InputField()).width(FIELD_WIDTH);
+		propertiesTable.add(yScaleField = new InputField(SelectionSummary.SCALE_Y)).width(FIELD_WIDTH);
 		propertiesTable.row();
 
 		propertiesTable.add(new VisLabel("Origin"));
 		propertiesTable.add(new VisLabel("X"));
-		propertiesTable.add(xOriginField = new InputField()).width(FIELD_WIDTH);
+		propertiesTable.add(xOriginField = new InputField(SelectionSummary.ORIGIN_X)).width(FIELD_WIDTH);
 		propertiesTable.add(new VisLabel("Y"));
-		propertiesTable.add(yOriginField = new InputField()).width(FIELD_WIDTH);
+		propertiesTable.add(yOriginField = new InputField(SelectionSummary.ORIGIN_Y)).width(FIELD_WIDTH);
 		propertiesTable.row();
 
 		propertiesTable.add(new VisLabel("Rotation"));
 		propertiesTable.add(new VisLabel(" "));
-		propertiesTable.add(rotationField = new InputField()).width(FIELD_WIDTH);
+		propertiesTable.add(rotationField = new InputField(SelectionSummary.ROTATION)).width(FIELD_WIDTH);
 		propertiesTable.add(tintTable).colspan(2);
 		propertiesTable.row();
 
@@ -229,168 +246,160 @@ public class ObjectProperties extends VisTable {
 		});
 	}
 
+	/**
+	 * Sets objects whose properties are displayed. Array is kept and must be the selection array, when objects are later added
+	 * to it or removed from it {@link #objectSelected(Object2d)} and {@link #objectDeselected(Object2d)} must be called.
+	 */
 	public void setValuesToFields (Array<Object2d> objects) {
 		this.objects = objects;
+		summary.clear();
 
-		if (objects.size == 0)
-			setVisible(false);
-		else if (objects.size == 1) {
-			setVisible(true);
-
-			Object2d obj = objects.get(0);
-
-			if (obj.id == null)
-				idField.setText("");
-			else
-				idField.setText(obj.id);
-
-			xField.setText(floatToString(obj.sprite.getX()));
-			yField.setText(floatToString(obj.sprite.getY()));
-			xScaleField.setText(floatToString(obj.sprite.getScaleX()));
-			yScaleField.setText(floatToString(obj.sprite.getScaleY()));
-			xOriginField.setText(floatToString(obj.sprite.getOriginX()));
-			yOriginField.setText(floatToString(obj.sprite.getOriginY()));
-			rotationField.setText(floatToString(obj.sprite.getRotation()));
-			tint.setUnknown(false);
-			tint.setColor(obj.sprite.getColor());
+		for (Object2d object : objects)
+			summary.add(object);
 
-			xFlipCheck.setChecked(obj.sprite.isFlipX());
-			yFlipCheck.setChecked(obj.sprite.isFlipY());
-		} else {
-			setVisible(true);
+		selectionChanged();
+	}
 
-			idField.setText(getObjectsId());
-			xField.setText(getObjectsFieldValue(new ObjectValue() {
-				@Override
-				public float getValue (Object2d object) {
-					return object.sprite.getX();
-				}
-			}));
-			yField.setText(getObjectsFieldValue(new ObjectValue() {
-				@Override
-				public float getValue (Object2d object) {
-					return object.sprite.getY();
-				}
-			}));
-			xScaleField.setText(getObjectsFieldValue(new ObjectValue() {
-				@Override
-				public float getValue (Object2d object) {
-					return object.sprite.getScaleX();
-				}
-			}));
-			yScaleField.setText(getObjectsFieldValue(new ObjectValue() {
-				@Override
-				public float getValue (Object2d object) {
-					return object.sprite.getScaleY();
-				}
-			}));
-			xOriginField.setText(getObjectsFieldValue(new ObjectValue() {
-				@Override
-				public float getValue (Object2d object) {
-					return object.sprite.getOriginX();
-				}
-			}));
-			yOriginField.setText(getObjectsFieldValue(new ObjectValue() {
-				@Override
-				public float getValue (Object2d object) {
-					return object.sprite.getOriginY();
-				}
-			}));
-			rotationField.setText(getObjectsFieldValue(new ObjectValue() {
-				@Override
-				public float getValue (Object2d object) {
-					return object.sprite.getRotation();
-				}
-			}));
-			setTintForObjects();
-			setXCheckForObjects();
-			setYCheckForObjects();
-		}
+	public void objectSelected (Object2d object) {
+		summary.add(object);
+		selectionChanged();
 	}
 
-	private String getObjectsId () {
-		String firstId = objects.first().id;
-		if (firstId == null) firstId = "";
+	public void objectDeselected (Object2d object) {
+		summary.remove(object);
+		selectionChanged();
+	}
 
-		for (Object2d object : objects) {
-			String objectId = object.id;
-			if (objectId == null) objectId = "";
+	private void selectionChanged () {
+		boolean visible = summary.size() > 0;
+		if (isVisible() != visible) setVisible(visible);
+		fieldsDirty = true;
+	}
 
-			if (firstId.equals(objectId) == false) {
-				return "<?>";
-			}
+	@Override
+	public void act (float delta) {
+		super.act(delta);
+
+		//fields are updated at most once per frame no matter how many times selection or objects were changed
+		if (fieldsDirty) {
+			fieldsDirty = false;
+			if (summary.size() > 0) updateFields();
 		}
+	}
+
+	private void updateFields () {
+		updatingFields = true;
+
+		String id = summary.getId();
+		setText(idField, id == null ? "<?>" : id);
+
+		setText(xField, getFieldText(SelectionSummary.X));
+		setText(yField, getFieldText(SelectionSummary.Y));
+		setText(xScaleField, getFieldText(SelectionSummary.SCALE_X));
+		setText(yScaleField, getFieldText(SelectionSummary.SCALE_Y));
+		setText(xOriginField, getFieldText(SelectionSummary.ORIGIN_X));
+		setText(yOriginField, getFieldText(SelectionSummary.ORIGIN_Y));
+		setText(rotationField, getFieldText(SelectionSummary.ROTATION));
+
+		if (summary.getTint(tintColor)) {
+			tint.setUnknown(false);
+			tint.setColor(tintColor);
+		} else
+			tint.setUnknown(true);
+
+		if (summary.isFlipXUniform()) xFlipCheck.setChecked(summary.isFlipX());
+		if (summary.isFlipYUniform()) yFlipCheck.setChecked(summary.isFlipY());
 
-		return firstId;
+		updatingFields = false;
 	}
 
-	private void setXCheckForObjects () {
-		boolean xFlip = objects.first().sprite.isFlipX();
-		for (Object2d object : objects) {
-			if (xFlip != object.sprite.isFlipX()) {
-				tint.setUnknown(false);
-				return;
-			}
-		}
-		xFlipCheck.setChecked(xFlip);
+	private String getFieldText (int property) {
+		return summary.isUniform(property) ? floatToString(summary.getMin(property)) : "?";
 	}
 
-	private void setYCheckForObjects () {
-		boolean yFlip = objects.first().sprite.isFlipY();
-		for (Object2d object : objects) {
-			if (yFlip != object.sprite.isFlipY()) {
-				tint.setUnknown(false);
-				return;
-			}
+	/** Text is only set if it's different, so cursor position of field that is being edited isn't reset */
+	private static void setText (VisTextField field, String text) {
+		if (field.getText().equals(text) == false) field.setText(text);
+	}
+
+	private void applyFieldValue (InputField field) {
+		//relative edits such as "+10" are only applied when confirmed with enter, see InputField
+		if (field.getText().startsWith("+")) return;
+
+		try {
+			applyValue(field.property, Float.parseFloat(field.getText()), false);
+		} catch (NumberFormatException ex) {
 		}
-		yFlipCheck.setChecked(yFlip);
 	}
 
-	private void setTintForObjects () {
-		Color firstColor = objects.first().sprite.getColor();
+	/**
+	 * Sets property of all selected objects in single pass, change is recorded as single undoable action
+	 * @param relative if true value is added to current value of each object
+	 */
+	private void applyValue (int property, float value, boolean relative) {
+		//following edits made in short time will be merged into this action by undo module
+		TransformAction action = new TransformAction(scene, objects, true);
+
 		for (Object2d object : objects) {
-			if (firstColor.equals(object.sprite.getColor()) == false) {
-				tint.setUnknown(true);
-				return;
-			}
+			SelectionSummary.setValue(object, property, relative ? SelectionSummary.getValue(object, property) + value : value);
+			scene.updateObjectBounds(object);
 		}
-		tint.setColor(firstColor);
+
+		if (action.finish()) undoModule.add(action);
+
+		updateSummary();
+
+		//field shows entered difference, it must be replaced with new values
+		if (relative) fieldsDirty = true;
 	}
 
-	private String getObjectsFieldValue (ObjectValue objValue) {
-		float value = objValue.getValue(objects.first());
+	private void applyFlip (boolean xAxis) {
+		TransformAction action = new TransformAction(scene, objects, true);
+		boolean flip = xAxis ? xFlipCheck.isChecked() : yFlipCheck.isChecked();
 
-		for (Object2d object : objects)
-			if (value != objValue.getValue(object)) return "?";
+		for (Object2d object : objects) {
+			object.setFlip(xAxis ? flip : object.isFlipX(), xAxis ? object.isFlipY() : flip);
+			scene.markChanged(object, SceneChangeListener.APPEARANCE);
+		}
+
+		if (action.finish()) undoModule.add(action);
 
-		return floatToString(value);
+		updateSummary();
 	}
 
-	private void setValuesToSprite () {
+	private void applyId () {
+		String id = idField.getText().equals("") ? null : idField.getText();
+
 		for (Object2d object : objects) {
-			Sprite sprite = object.sprite;
-
-			object.id = idField.getText().equals("") ? null : idField.getText();
-			sprite.setPosition(FieldUtils.getFloat(xField, sprite.getX()), FieldUtils.getFloat(yField, sprite.getY()));
-			sprite.setScale(FieldUtils.getFloat(xScaleField, sprite.getScaleX()), FieldUtils.getFloat(yScaleField, sprite.getScaleY()));
-			sprite.setOrigin(FieldUtils.getFloat(xOriginField, sprite.getOriginX()), FieldUtils.getFloat(yOriginField, sprite.getOriginY()));
-			sprite.setRotation(FieldUtils.getFloat(rotationField, sprite.getRotation()));
-			sprite.setFlip(xFlipCheck.isChecked(), yFlipCheck.isChecked());
+			if (id == null ? object.id != null : id.equals(object.id) == false) {
+				object.id = id;
+				scene.markChanged(object, PROPERTIES);
+			}
 		}
+
+		updateSummary();
 	}
 
-	public void updateValues () {
-		setValuesToFields(objects);
+	/**
+	 * Updates summary right after objects were changed using fields, so change notification won't refresh fields that already
+	 * show new values, that would interrupt editing
+	 */
+	private void updateSummary () {
+		for (Object2d object : objects)
+			summary.update(object);
 	}
 
-	private interface ObjectValue {
-		public float getValue (Object2d object);
+	@Override
+	public void objectsChanged (Array<EditorSceneObject> changedObjects) {
+		for (EditorSceneObject object : changedObjects)
+			if (object instanceof Object2d && summary.update((Object2d) object)) fieldsDirty = true;
 	}
 
 	private class FieldValidator implements InputValidator {
 		@Override
 		public boolean validateInput (String input) {
 			if (input.equals("?")) return true;
+			if (input.startsWith("+")) input = input.substring(1);
 
 			try {
 				Float.parseFloat(input);
@@ -409,7 +418,7 @@ public class ObjectProperties extends VisTable {
 			//if(textField.getCursorPosition() > 0 && c == '-') return false;
 			if (c == '.') return true;
 			if (c == '-') return true;
-			if (c == '+') return false;
+			if (c == '+') return textField.getCursorPosition() == 0;
 
 			if (c == '?') return true;
 
@@ -417,8 +426,16 @@ public class ObjectProperties extends VisTable {
 		}
 	}
 
+	/**
+	 * Text field for float property. Entered value is applied to all selected objects, value starting with '+' (for example "+10"
+	 * or "+-10") is added to value of each object when enter is pressed.
+	 */
 	private class InputField extends VisValidableTextField {
-		public InputField () {
+		private final int property;
+
+		public InputField (int property) {
+			this.property = property;
+
 			addValidator(sharedFieldValidator);
 
 			//without disabling it, it would case to set old values from new object on switch
@@ -452,7 +469,13 @@ public class ObjectProperties extends VisTable {
 
 				checkKeys();
 
-				if (character == '-' && InputField.this.getCursorPosition() > 0 && getText().startsWith("-") == false)
+				if ((character == '\r' || character == '\n') && getText().startsWith("+")) {
+					applyRelativeValue();
+					return true;
+				}
+
+				int signLength = getText().startsWith("+") ? 1 : 0;
+				if (character == '-' && InputField.this.getCursorPosition() > signLength && getText().startsWith("-") == false)
 					return keyTypedReturnValue;
 
 				if (character == '.' && getText().contains(".")) return keyTypedReturnValue;
@@ -490,7 +513,16 @@ public class ObjectProperties extends VisTable {
 					setText(floatToString(fieldValue));
 					InputField.this.setCursorPosition(lastPos);
 
-					setValuesToSprite();
+					applyValue(property, fieldValue, false);
+				} catch (NumberFormatException ex) {
+					//objects have different values, change is added to value of each of them
+					if (getText().equals("?")) applyValue(property, value, true);
+				}
+			}
+
+			private void applyRelativeValue () {
+				try {
+					applyValue(property, Float.parseFloat(getText().substring(1)), true);
 				} catch (NumberFormatException ex) {
 				}
 			}
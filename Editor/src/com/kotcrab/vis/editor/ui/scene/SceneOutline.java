@@ -19,15 +19,219 @@
 
 package com.kotcrab.vis.editor.ui.scene;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.scenes.scene2d.ui.WidgetGroup;
+import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
+import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntSet;
+import com.kotcrab.vis.editor.module.scene.EditorScene;
+import com.kotcrab.vis.editor.module.scene.EditorSceneObject;
+import com.kotcrab.vis.editor.module.scene.Object2d;
+import com.kotcrab.vis.editor.module.scene.ObjectManipulatorModule;
+import com.kotcrab.vis.editor.module.scene.SceneChangeListener;
 import com.kotcrab.vis.ui.VisTable;
 import com.kotcrab.vis.ui.VisUI;
 import com.kotcrab.vis.ui.widget.VisLabel;
+import com.kotcrab.vis.ui.widget.VisScrollPane;
 
-public class SceneOutline extends VisTable {
-	public SceneOutline () {
+/**
+ * Lists scene objects in z-order. List is virtualized, actors are only created for rows that are visible in scroll pane and
+ * are reused when list is scrolled, so outline of scene with many objects stays fast. Selected objects are stored as set of
+ * object handles that is kept in sync with {@link ObjectManipulatorModule}.
+ */
+public class SceneOutline extends VisTable implements SceneChangeListener {
+	private static final float ROW_HEIGHT = 20;
+
+	private static final Drawable selectionBg = VisUI.getSkin().getDrawable("list-selection");
+
+	private EditorScene scene;
+	private ObjectManipulatorModule objectManipulator;
+
+	private VisScrollPane scrollPane;
+	private RowsGroup rowsGroup;
+	private Array<Row> rows = new Array<>();
+
+	private IntSet selectedHandles = new IntSet();
+
+	/** Scene order version and first visible row that rows were bound for, rows are bound again when they change */
+	private long boundOrderVersion = -1;
+	private int boundFirstRow = -1;
+	private boolean rowsDirty;
+
+	/** Last selected object, outline is scrolled to it once per frame instead of for every object of selection */
+	private Object2d scrollTarget;
+
+	public SceneOutline (EditorScene scene, ObjectManipulatorModule objectManipulator) {
 		super(true);
+		this.scene = scene;
+		this.objectManipulator = objectManipulator;
+
 		setBackground(VisUI.getSkin().getDrawable("window-bg"));
 		top();
 		add(new VisLabel("Outline"));
+		row();
+
+		rowsGroup = new RowsGroup();
+		scrollPane = new VisScrollPane(rowsGroup);
+		scrollPane.setFadeScrollBars(false);
+		scrollPane.setScrollingDisabled(true, false);
+		add(scrollPane).expand().fill();
+	}
+
+	public void selectionCleared () {
+		selectedHandles.clear();
+		rowsDirty = true;
+		scrollTarget = null;
+	}
+
+	public void objectSelected (Object2d object) {
+		selectedHandles.add(object.getHandle());
+		rowsDirty = true;
+		scrollTarget = object;
+	}
+
+	public void objectDeselected (Object2d object) {
+		selectedHandles.remove(object.getHandle());
+		rowsDirty = true;
+		if (scrollTarget == object) scrollTarget = null;
+	}
+
+	@Override
+	public void objectsChanged (Array<EditorSceneObject> objects) {
+		//changes of order are detected using scene order version, only id changes need to be checked here
+		for (EditorSceneObject object : objects) {
+			if ((object.getChanges() & PROPERTIES) != 0) {
+				rowsDirty = true;
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void act (float delta) {
+		super.act(delta);
+
+		if (scene.getOrderVersion() != boundOrderVersion) {
+			//row count may have changed
+			rowsGroup.invalidateHierarchy();
+			rowsDirty = true;
+		}
+
+		if (scrollTarget != null) {
+			scrollToObject(scrollTarget);
+			scrollTarget = null;
+		}
+
+		if (rowsDirty || getFirstVisibleRow() != boundFirstRow) bindRows();
+	}
+
+	private void scrollToObject (Object2d object) {
+		int index = scene.indexOf(object);
+		if (index == -1) return;
+
+		//rows group height must be up to date when objects were added in this frame
+		scrollPane.validate();
+		scrollPane.scrollTo(0, rowsGroup.getHeight() - (index + 1) * ROW_HEIGHT, 0, ROW_HEIGHT);
+	}
+
+	private int getFirstVisibleRow () {
+		return Math.max(0, (int) (scrollPane.getVisualScrollY() / ROW_HEIGHT));
+	}
+
+	/** Assigns objects to rows that are currently visible, creates new rows only if there isn't enough of them */
+	private void bindRows () {
+		int count = scene.getObjectCount();
+		int first = getFirstVisibleRow();
+		int last = Math.min(count, first + (int) Math.ceil(scrollPane.getScrollHeight() / ROW_HEIGHT) + 1);
+		int visibleRows = Math.max(0, last - first);
+
+		while (rows.size < visibleRows) {
+			Row row = new Row();
+			rows.add(row);
+			rowsGroup.addActor(row);
+		}
+
+		for (int i = 0; i < rows.size; i++) {
+			Row row = rows.get(i);
+
+			if (i < visibleRows)
+				row.bind(first + i, scene.getObject(first + i));
+			else
+				row.unbind();
+		}
+
+		boundOrderVersion = scene.getOrderVersion();
+		boundFirstRow = first;
+		rowsDirty = false;
+		rowsGroup.invalidate();
+	}
+
+	private void rowClicked (Row row) {
+		if (row.object instanceof Object2d == false) return;
+		Object2d object = (Object2d) row.object;
+
+		if (Gdx.input.isKeyPressed(Keys.CONTROL_LEFT))
+			objectManipulator.toggleSelection(object);
+		else
+			objectManipulator.select(object);
+	}
+
+	private static String getObjectName (EditorSceneObject object) {
+		if (object.id != null) return object.id;
+
+		if (object instanceof Object2d) {
+			String path = ((Object2d) object).regionRelativePath;
+			return path.substring(path.lastIndexOf('/') + 1);
+		}
+
+		return object.getClass().getSimpleName();
+	}
+
+	/** Has height of all rows so scroll pane can scroll it, but contains only actors of visible rows */
+	private class RowsGroup extends WidgetGroup {
+		@Override
+		public float getPrefHeight () {
+			return scene.getObjectCount() * ROW_HEIGHT;
+		}
+
+		@Override
+		public void layout () {
+			for (Row row : rows)
+				if (row.isVisible()) row.setBounds(0, getHeight() - (row.index + 1) * ROW_HEIGHT, getWidth(), ROW_HEIGHT);
+		}
+	}
+
+	private class Row extends VisTable {
+		private VisLabel label;
+		private int index;
+		private EditorSceneObject object;
+
+		public Row () {
+			left();
+			add(label = new VisLabel()).padLeft(4);
+
+			addListener(new ClickListener() {
+				@Override
+				public void clicked (InputEvent event, float x, float y) {
+					rowClicked(Row.this);
+				}
+			});
+		}
+
+		void bind (int index, EditorSceneObject object) {
+			this.index = index;
+			this.object = object;
+			label.setText(getObjectName(object));
+			setBackground(selectedHandles.contains(object.getHandle()) ? selectionBg : null);
+			setVisible(true);
+		}
+
+		void unbind () {
+			object = null;
+			setVisible(false);
+		}
 	}
 }
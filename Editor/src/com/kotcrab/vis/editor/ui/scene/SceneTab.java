@@ -21,7 +21,6 @@ package com.kotcrab.vis.editor.ui.scene;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.Touchable;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
@@ -29,28 +28,32 @@ import com.badlogic.gdx.scenes.scene2d.utils.DragAndDrop.Payload;
 import com.badlogic.gdx.scenes.scene2d.utils.DragAndDrop.Source;
 import com.badlogic.gdx.scenes.scene2d.utils.DragAndDrop.Target;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.kotcrab.vis.editor.App;
 import com.kotcrab.vis.editor.Editor;
 import com.kotcrab.vis.editor.event.Event;
 import com.kotcrab.vis.editor.event.EventListener;
 import com.kotcrab.vis.editor.event.MenuEvent;
 import com.kotcrab.vis.editor.event.MenuEventType;
+import com.kotcrab.vis.editor.event.StatusBarEvent;
 import com.kotcrab.vis.editor.event.TexturesReloadedEvent;
 import com.kotcrab.vis.editor.module.MenuBarModule;
 import com.kotcrab.vis.editor.module.StatusBarModule;
 import com.kotcrab.vis.editor.module.project.ProjectModuleContainer;
 import com.kotcrab.vis.editor.module.project.SceneIOModule;
+import com.kotcrab.vis.editor.module.project.SceneIOModule.SaveCallback;
 import com.kotcrab.vis.editor.module.project.TextureCacheModule;
 import com.kotcrab.vis.editor.module.scene.CameraModule;
 import com.kotcrab.vis.editor.module.scene.EditorScene;
 import com.kotcrab.vis.editor.module.scene.EditorSceneObject;
 import com.kotcrab.vis.editor.module.scene.GridRendererModule;
+import com.kotcrab.vis.editor.module.scene.HibernationModule;
 import com.kotcrab.vis.editor.module.scene.Object2d;
 import com.kotcrab.vis.editor.module.scene.ObjectManipulatorModule;
+import com.kotcrab.vis.editor.module.scene.ObjectsAddedAction;
 import com.kotcrab.vis.editor.module.scene.RendererModule;
 import com.kotcrab.vis.editor.module.scene.SceneModuleContainer;
 import com.kotcrab.vis.editor.module.scene.UndoModule;
-import com.kotcrab.vis.editor.module.scene.UndoableAction;
 import com.kotcrab.vis.editor.module.scene.ZIndexManipulator;
 import com.kotcrab.vis.editor.ui.tab.DragAndDropTarget;
 import com.kotcrab.vis.editor.ui.tab.Tab;
@@ -71,10 +74,14 @@ public class SceneTab extends Tab implements DragAndDropTarget, EventListener, D
 	private SceneModuleContainer sceneMC;
 	private UndoModule undoModule;
 	private CameraModule cameraModule;
+	private RendererModule rendererModule;
+	private HibernationModule hibernationModule;
 
-	private ContentTable content;
+	private long lastStatsUpdate;
+	/** Incremented every time scene is modified, used to check if scene was modified while it was being saved */
+	private int changes;
 
-	private SceneOutline outline;
+	private ContentTable content;
 
 	private Target dropTarget;
 
@@ -90,17 +97,16 @@ public class SceneTab extends Tab implements DragAndDropTarget, EventListener, D
 		sceneIOModule = projectMC.get(SceneIOModule.class);
 
 		sceneMC = new SceneModuleContainer(projectMC, this, scene);
+		sceneMC.add(hibernationModule = new HibernationModule());
 		sceneMC.add(cameraModule = new CameraModule());
 		sceneMC.add(new GridRendererModule());
-		sceneMC.add(new RendererModule());
+		sceneMC.add(rendererModule = new RendererModule());
 
 		sceneMC.add(undoModule = new UndoModule());
 		sceneMC.add(new ZIndexManipulator());
 		sceneMC.add(objectManipulatorModule = new ObjectManipulatorModule());
 		sceneMC.init();
 
-		outline = new SceneOutline();
-
 		VisTable leftColumn = new VisTable(false);
 		VisTable rightColumn = new VisTable(false);
 
@@ -115,7 +121,7 @@ public class SceneTab extends Tab implements DragAndDropTarget, EventListener, D
 		content.add(rightColumn).width(245).fillY().expandY();
 
 		leftColumn.top();
-		//leftColumn.add(outline).height(300).fillX().expandX();
+		leftColumn.add(sceneMC.get(ObjectManipulatorModule.class).getSceneOutline()).height(300).fillX().expandX();
 		leftColumn.row();
 		leftColumn.add().fill().expand();
 
@@ -142,24 +148,13 @@ public class SceneTab extends Tab implements DragAndDropTarget, EventListener, D
 	private void dropped (Payload payload) {
 		TextureRegion region = (TextureRegion) payload.getObject();
 
-		Sprite sprite = new Sprite(region);
-		float x = cameraModule.getInputX() - sprite.getWidth() / 2;
-		float y = cameraModule.getInputY() - sprite.getHeight() / 2;
+		float x = cameraModule.getInputX() - region.getRegionWidth() / 2;
+		float y = cameraModule.getInputY() - region.getRegionHeight() / 2;
 
-		final Object2d object = new Object2d(cacheModule.getRelativePath(region), region, x, y);
+		Object2d object = new Object2d(cacheModule.getRelativePath(region), region, x, y);
 
-		undoModule.execute(new UndoableAction() {
-			@Override
-			public void execute () {
-				scene.objects.add(object);
-				objectManipulatorModule.select(object);
-			}
-
-			@Override
-			public void undo () {
-				scene.objects.removeValue(object, true);
-			}
-		});
+		undoModule.execute(new ObjectsAddedAction(scene, object));
+		objectManipulatorModule.select(object);
 
 		setDirty(true);
 	}
@@ -178,6 +173,17 @@ public class SceneTab extends Tab implements DragAndDropTarget, EventListener, D
 
 		batch.end();
 		batch.setColor(oldColor);
+
+		if (isActiveTab() && TimeUtils.timeSinceMillis(lastStatsUpdate) > 1000) {
+			lastStatsUpdate = TimeUtils.millis();
+			updateInfoLabel();
+		}
+	}
+
+	private void updateInfoLabel () {
+		statusBarModule.setInfoLabelText("Scene: " + scene.width + " x " + scene.height
+				+ " | Drawn: " + rendererModule.getDrawnObjects() + ", Culled: " + rendererModule.getCulledObjects()
+				+ ", Flushes: " + rendererModule.getRenderCalls());
 	}
 
 	@Override
@@ -210,7 +216,7 @@ public class SceneTab extends Tab implements DragAndDropTarget, EventListener, D
 		super.onShow();
 		sceneMC.onShow();
 		menuBarModule.setSceneButtonsListener(this);
-		statusBarModule.setInfoLabelText("Scene: " + scene.width + " x " + scene.height);
+		updateInfoLabel();
 	}
 
 	@Override
@@ -232,15 +238,16 @@ public class SceneTab extends Tab implements DragAndDropTarget, EventListener, D
 				MenuEventType type = ((MenuEvent) event).type;
 
 				if (type == MenuEventType.FILE_SAVE)
-					save();
+					saveInBackground();
 			}
 		}
 
 		if (event instanceof TexturesReloadedEvent) {
-			for (EditorSceneObject object : scene.objects) {
+			for (EditorSceneObject object : scene.getObjects()) {
 				if (object instanceof Object2d) {
 					Object2d object2d = (Object2d) object;
-					object2d.updateSpriteRegion(cacheModule.getRegion(object2d.regionRelativePath));
+					object2d.setRegion(cacheModule.getRegion(object2d.regionRelativePath));
+					scene.updateObjectBounds(object2d);
 				}
 			}
 		}
@@ -248,19 +255,49 @@ public class SceneTab extends Tab implements DragAndDropTarget, EventListener, D
 		return false;
 	}
 
+	/** Saves scene synchronously, used when tab result of save must be known, for example before tab is closed */
 	@Override
 	public boolean save () {
+		hibernationModule.wakeUpNow();
+
 		if (sceneIOModule.save(scene)) {
 			setDirty(false);
 			sceneMC.save();
 			return true;
 		}
 
+		App.eventBus.post(new StatusBarEvent("Scene save failed, check log for details"));
 		return false;
 	}
 
+	/** Starts saving scene in background, tab stays dirty until save is finished */
+	private void saveInBackground () {
+		hibernationModule.wakeUpNow();
+
+		final int savedChanges = changes;
+
+		sceneIOModule.saveAsync(scene, new SaveCallback() {
+			@Override
+			public void finished (boolean success) {
+				if (success == false)
+					App.eventBus.post(new StatusBarEvent("Scene save failed, check log for details"));
+				else if (changes == savedChanges)
+					setDirty(false);
+			}
+		});
+
+		sceneMC.save();
+	}
+
+	@Override
+	public void setDirty (boolean dirty) {
+		if (dirty) changes++;
+		super.setDirty(dirty);
+	}
+
 	@Override
 	public void dispose () {
+		scene.cancelLoading();
 		sceneMC.dispose();
 		App.eventBus.unregister(this);
 	}
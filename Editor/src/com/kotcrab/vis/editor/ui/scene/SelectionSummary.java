@@ -0,0 +1,345 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.ui.scene;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.kotcrab.vis.editor.module.scene.Object2d;
+
+/**
+ * Summary of property values of selected objects, used by {@link ObjectProperties}. For every property it keeps number of
+ * objects having each value, so it can tell whether all selected objects share same value without scanning whole
+ * selection. Summary is updated incrementally when objects join or leave selection or are changed.
+ */
+class SelectionSummary {
+	static final int X = 0;
+	static final int Y = 1;
+	static final int SCALE_X = 2;
+	static final int SCALE_Y = 3;
+	static final int ORIGIN_X = 4;
+	static final int ORIGIN_Y = 5;
+	static final int ROTATION = 6;
+	private static final int FLOAT_PROPERTIES = 7;
+
+	private ObjectMap<Object2d, Values> objects = new ObjectMap<>();
+	/** Reused when selected object is updated, so updates don't allocate */
+	private Values newValues = new Values();
+
+	private FloatSummary[] floats = new FloatSummary[FLOAT_PROPERTIES];
+	private ObjectIntMap<String> ids = new ObjectIntMap<>();
+	private IntIntMap tints = new IntIntMap();
+	private int flippedX;
+	private int flippedY;
+
+	public SelectionSummary () {
+		for (int i = 0; i < FLOAT_PROPERTIES; i++)
+			floats[i] = new FloatSummary();
+	}
+
+	public void add (Object2d object) {
+		if (objects.containsKey(object)) return;
+
+		Values values = new Values();
+		values.read(object);
+		objects.put(object, values);
+
+		for (int i = 0; i < FLOAT_PROPERTIES; i++)
+			floats[i].add(values.floats[i]);
+
+		ids.getAndIncrement(values.id, 0, 1);
+		tints.getAndIncrement(values.tint, 0, 1);
+		if (values.flipX) flippedX++;
+		if (values.flipY) flippedY++;
+	}
+
+	public void remove (Object2d object) {
+		Values values = objects.remove(object);
+		if (values == null) return;
+
+		for (int i = 0; i < FLOAT_PROPERTIES; i++)
+			floats[i].remove(values.floats[i]);
+
+		decrement(ids, values.id);
+		decrement(tints, values.tint);
+		if (values.flipX) flippedX--;
+		if (values.flipY) flippedY--;
+	}
+
+	/**
+	 * Updates summary after selected object was changed, does nothing if object isn't selected
+	 * @return true if any value of object was changed
+	 */
+	public boolean update (Object2d object) {
+		Values values = objects.get(object);
+		if (values == null) return false;
+
+		newValues.read(object);
+		boolean changed = false;
+
+		for (int i = 0; i < FLOAT_PROPERTIES; i++) {
+			float oldValue = values.floats[i];
+			float newValue = newValues.floats[i];
+
+			if (oldValue != newValue) {
+				floats[i].remove(oldValue);
+				floats[i].add(newValue);
+				changed = true;
+			}
+		}
+
+		if (values.id.equals(newValues.id) == false) {
+			decrement(ids, values.id);
+			ids.getAndIncrement(newValues.id, 0, 1);
+			changed = true;
+		}
+
+		if (values.tint != newValues.tint) {
+			decrement(tints, values.tint);
+			tints.getAndIncrement(newValues.tint, 0, 1);
+			changed = true;
+		}
+
+		if (values.flipX != newValues.flipX) {
+			flippedX += newValues.flipX ? 1 : -1;
+			changed = true;
+		}
+
+		if (values.flipY != newValues.flipY) {
+			flippedY += newValues.flipY ? 1 : -1;
+			changed = true;
+		}
+
+		values.set(newValues);
+		return changed;
+	}
+
+	public void clear () {
+		objects.clear();
+
+		for (FloatSummary summary : floats)
+			summary.clear();
+
+		ids.clear();
+		tints.clear();
+		flippedX = 0;
+		flippedY = 0;
+	}
+
+	public int size () {
+		return objects.size;
+	}
+
+	/** @return true if all selected objects have same value of property */
+	public boolean isUniform (int property) {
+		return floats[property].isUniform();
+	}
+
+	public float getMin (int property) {
+		return floats[property].getMin();
+	}
+
+	public float getMax (int property) {
+		return floats[property].getMax();
+	}
+
+	/** @return id shared by all selected objects, empty string if objects don't have id, null if ids are different */
+	public String getId () {
+		return ids.size == 1 ? ids.keys().next() : null;
+	}
+
+	/** @return true if all objects have same tint, if they do it's set to passed color */
+	public boolean getTint (Color color) {
+		if (tints.size != 1) return false;
+		Color.rgba8888ToColor(color, tints.keys().next());
+		return true;
+	}
+
+	public boolean isFlipXUniform () {
+		return flippedX == 0 || flippedX == objects.size;
+	}
+
+	public boolean isFlipYUniform () {
+		return flippedY == 0 || flippedY == objects.size;
+	}
+
+	/** @return true if at least one object is flipped, if flip is uniform all objects are flipped */
+	public boolean isFlipX () {
+		return flippedX > 0;
+	}
+
+	public boolean isFlipY () {
+		return flippedY > 0;
+	}
+
+	static float getValue (Object2d object, int property) {
+		switch (property) {
+			case X:
+				return object.getX();
+			case Y:
+				return object.getY();
+			case SCALE_X:
+				return object.getScaleX();
+			case SCALE_Y:
+				return object.getScaleY();
+			case ORIGIN_X:
+				return object.getOriginX();
+			case ORIGIN_Y:
+				return object.getOriginY();
+			case ROTATION:
+				return object.getRotation();
+			default:
+				throw new IllegalArgumentException("Unknown property: " + property);
+		}
+	}
+
+	static void setValue (Object2d object, int property, float value) {
+		switch (property) {
+			case X:
+				object.setPosition(value, object.getY());
+				break;
+			case Y:
+				object.setPosition(object.getX(), value);
+				break;
+			case SCALE_X:
+				object.setScale(value, object.getScaleY());
+				break;
+			case SCALE_Y:
+				object.setScale(object.getScaleX(), value);
+				break;
+			case ORIGIN_X:
+				object.setOrigin(value, object.getOriginY());
+				break;
+			case ORIGIN_Y:
+				object.setOrigin(object.getOriginX(), value);
+				break;
+			case ROTATION:
+				object.setRotation(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown property: " + property);
+		}
+	}
+
+	private static <T> void decrement (ObjectIntMap<T> counts, T key) {
+		if (counts.getAndIncrement(key, 0, -1) == 1) counts.remove(key, 0);
+	}
+
+	private static void decrement (IntIntMap counts, int key) {
+		if (counts.getAndIncrement(key, 0, -1) == 1) counts.remove(key, 0);
+	}
+
+	private static class FloatSummary {
+		/** Number of objects by raw bits of value */
+		private IntIntMap counts = new IntIntMap();
+		private float min;
+		private float max;
+		/** Min and max are recalculated lazily after value that was min or max was removed */
+		private boolean boundsValid = true;
+
+		void add (float value) {
+			value = normalize(value);
+
+			if (counts.size == 0) {
+				min = value;
+				max = value;
+			} else if (boundsValid) {
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+
+			counts.getAndIncrement(Float.floatToIntBits(value), 0, 1);
+		}
+
+		void remove (float value) {
+			value = normalize(value);
+			decrement(counts, Float.floatToIntBits(value));
+			if (value == min || value == max) boundsValid = false;
+		}
+
+		boolean isUniform () {
+			return counts.size == 1;
+		}
+
+		float getMin () {
+			updateBounds();
+			return min;
+		}
+
+		float getMax () {
+			updateBounds();
+			return max;
+		}
+
+		void clear () {
+			counts.clear();
+			boundsValid = true;
+		}
+
+		private void updateBounds () {
+			if (boundsValid) return;
+
+			min = Float.MAX_VALUE;
+			max = -Float.MAX_VALUE;
+
+			IntIntMap.Keys keys = counts.keys();
+			while (keys.hasNext) {
+				float value = Float.intBitsToFloat(keys.next());
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+
+			boundsValid = true;
+		}
+
+		/** Makes -0 equal to 0, they have different bits but should be displayed as same value */
+		private static float normalize (float value) {
+			return value == 0 ? 0 : value;
+		}
+	}
+
+	/** Values of object at the time they were added to summary */
+	private static class Values {
+		float[] floats = new float[FLOAT_PROPERTIES];
+		String id;
+		int tint;
+		boolean flipX;
+		boolean flipY;
+
+		void read (Object2d object) {
+			for (int i = 0; i < FLOAT_PROPERTIES; i++)
+				floats[i] = getValue(object, i);
+
+			id = object.id == null ? "" : object.id;
+			tint = object.getTint();
+			flipX = object.isFlipX();
+			flipY = object.isFlipY();
+		}
+
+		void set (Values values) {
+			System.arraycopy(values.floats, 0, floats, 0, FLOAT_PROPERTIES);
+			id = values.id;
+			tint = values.tint;
+			flipX = values.flipX;
+			flipY = values.flipY;
+		}
+	}
+}
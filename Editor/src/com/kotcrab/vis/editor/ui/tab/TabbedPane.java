@@ -107,8 +107,10 @@ public class TabbedPane {
 					OptionDialogType.YES_NO_CANCEL, new OptionDialogAdapter() {
 						@Override
 						public void yes () {
-							tab.save();
-							removeTab(tab);
+							if (tab.save())
+								removeTab(tab);
+							else
+								DialogUtils.showErrorDialog(Editor.instance.getStage(), "Resource could not be saved, check log for details");
 						}
 
 						@Override
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.util;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Region;
+
+/**
+ * 1-bit alpha mask of texture region, used for pixel-accurate picking without reading textures back from GPU. Mask covers
+ * whole original image, pixels removed by whitespace stripping are transparent.
+ */
+public class AlphaMask {
+	/** Pixels with alpha lower than this value are treated as transparent */
+	public static final int ALPHA_THRESHOLD = 16;
+
+	private final int width;
+	private final int height;
+	/** Row-major, first row is top row of image */
+	private final long[] bits;
+
+	private AlphaMask (int width, int height) {
+		this.width = width;
+		this.height = height;
+		bits = new long[(width * height + 63) / 64];
+	}
+
+	/**
+	 * Creates mask of atlas region from its page pixmap, pixmap is only read on CPU so this can be called from any thread.
+	 * @return created mask or null if region is rotated in atlas and mask can't be created
+	 */
+	public static AlphaMask create (Pixmap page, Region region) {
+		if (region.rotate) return null;
+
+		AlphaMask mask = new AlphaMask(region.originalWidth, region.originalHeight);
+		int offsetX = (int) region.offsetX;
+		//atlas offset is measured from bottom of original image
+		int offsetY = region.originalHeight - (int) region.offsetY - region.height;
+
+		for (int y = 0; y < region.height; y++) {
+			for (int x = 0; x < region.width; x++) {
+				int alpha = page.getPixel(region.left + x, region.top + y) & 0xff;
+				if (alpha >= ALPHA_THRESHOLD) mask.set(offsetX + x, offsetY + y);
+			}
+		}
+
+		return mask;
+	}
+
+	private void set (int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) return;
+		int index = y * width + x;
+		bits[index >>> 6] |= 1L << (index & 63);
+	}
+
+	/**
+	 * @param u horizontal position in image, 0 is left edge and 1 is right edge
+	 * @param v vertical position in image, 0 is top edge and 1 is bottom edge
+	 * @return true if pixel at given position is opaque
+	 */
+	public boolean isOpaque (float u, float v) {
+		if (width == 0 || height == 0 || u < 0 || v < 0 || u > 1 || v > 1) return false;
+
+		int x = Math.min((int) (u * width), width - 1);
+		int y = Math.min((int) (v * height), height - 1);
+		int index = y * width + x;
+		return (bits[index >>> 6] & 1L << (index & 63)) != 0;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.util;
+
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo serializer for LibGDX {@link Array}, default FieldSerializer would also try to serialize array iterator.
+ * Serialized array always uses Object[] as backing array.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ArraySerializer extends Serializer<Array> {
+	@Override
+	public void write (Kryo kryo, Output output, Array array) {
+		output.writeInt(array.size, true);
+		output.writeBoolean(array.ordered);
+
+		for (int i = 0; i < array.size; i++)
+			kryo.writeClassAndObject(output, array.get(i));
+	}
+
+	@Override
+	public Array read (Kryo kryo, Input input, Class<Array> type) {
+		int size = input.readInt(true);
+		boolean ordered = input.readBoolean();
+
+		Array array = new Array(ordered, Math.max(size, 1));
+		kryo.reference(array);
+
+		for (int i = 0; i < size; i++)
+			array.add(kryo.readClassAndObject(input));
+
+		return array;
+	}
+}
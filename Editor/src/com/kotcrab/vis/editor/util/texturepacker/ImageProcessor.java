@@ -65,6 +65,19 @@ public class ImageProcessor {
 
 	/** The image won't be kept in-memory during packing if {@link com.kotcrab.vis.editor.util.texturepacker.TexturePacker.Settings#limitMemory} is true. */
 	public void addImage (File file) {
+		addPreparedImage(prepareImage(file));
+	}
+
+	/** The image will be kept in-memory during packing.
+	 * @see #addImage(File) */
+	public TexturePacker.Rect addImage (BufferedImage image, String name) {
+		return addPreparedImage(prepareImage(image, name));
+	}
+
+	/** Reads and processes the image without modifying this processor, so it can be called from multiple threads at once. The
+	 * result must be added with {@link #addPreparedImage(PreparedImage)}.
+	 * @see #addImage(File) */
+	public PreparedImage prepareImage (File file) {
 		BufferedImage image;
 		try {
 			image = ImageIO.read(file);
@@ -85,14 +98,25 @@ public class ImageProcessor {
 		int dotIndex = name.lastIndexOf('.');
 		if (dotIndex != -1) name = name.substring(0, dotIndex);
 
-		TexturePacker.Rect rect = addImage(image, name);
-		if (rect != null && settings.limitMemory) rect.unloadImage(file);
+		PreparedImage prepared = prepareImage(image, name);
+		if (prepared.rect != null && settings.limitMemory) prepared.rect.unloadImage(file);
+		return prepared;
 	}
 
-	/** The image will be kept in-memory during packing.
-	 * @see #addImage(File) */
-	public TexturePacker.Rect addImage (BufferedImage image, String name) {
-		TexturePacker.Rect rect = processImage(image, name);
+	/** Processes and hashes the image without modifying this processor, so it can be called from multiple threads at once.
+	 * @see #prepareImage(File) */
+	public PreparedImage prepareImage (BufferedImage image, String name) {
+		PreparedImage prepared = new PreparedImage();
+		prepared.rect = processImage(image, name);
+		if (prepared.rect != null && settings.alias) prepared.crc = hash(prepared.rect.getImage(this));
+		return prepared;
+	}
+
+	/** Adds the prepared image, images must be added in the same order as they would be added using {@link #addImage(File)} to
+	 * get the same aliases.
+	 * @return rect of the image or null if it is blank or an alias of already added image */
+	public TexturePacker.Rect addPreparedImage (PreparedImage prepared) {
+		TexturePacker.Rect rect = prepared.rect;
 
 		if (rect == null) {
 			// System.out.println("Ignoring blank input image: " + name);
@@ -100,14 +124,13 @@ public class ImageProcessor {
 		}
 
 		if (settings.alias) {
-			String crc = hash(rect.getImage(this));
-			TexturePacker.Rect existing = crcs.get(crc);
+			TexturePacker.Rect existing = crcs.get(prepared.crc);
 			if (existing != null) {
 				// System.out.println(rect.name + " (alias of " + existing.name + ")");
 				existing.aliases.add(new TexturePacker.Alias(rect));
 				return null;
 			}
-			crcs.put(crc, rect);
+			crcs.put(prepared.crc, rect);
 		}
 
 		rects.add(rect);
@@ -409,6 +432,14 @@ public class ImageProcessor {
 		return 0;
 	}
 
+	/** Image read and processed by {@link ImageProcessor#prepareImage(File)}, waiting to be added to processor. */
+	static public class PreparedImage {
+		/** Null if the image is blank and should not be packed. */
+		TexturePacker.Rect rect;
+		/** Hash of the image, null if aliases are disabled. */
+		String crc;
+	}
+
 	static private String hash (BufferedImage image) {
 		try {
 			MessageDigest digest = MessageDigest.getInstance("SHA1");
@@ -20,6 +20,9 @@
 package com.kotcrab.vis.editor.util.texturepacker;
 
 import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Array;
@@ -32,18 +35,33 @@ import com.badlogic.gdx.utils.Sort;
 public class MaxRectsPacker implements TexturePacker.Packer {
 	private RectComparator rectComparator = new RectComparator();
 	private FreeRectChoiceHeuristic[] methods = FreeRectChoiceHeuristic.values();
-	private MaxRects maxRects = new MaxRects();
+	private MaxRects[] maxRects = new MaxRects[methods.length];
 	TexturePacker.Settings settings;
 	private Sort sort = new Sort();
+	/** Runs heuristics of single {@link #packAtSize(boolean, int, int, Array)} concurrently, null if only one core is available */
+	private ExecutorService executor;
 
 	public MaxRectsPacker (TexturePacker.Settings settings) {
 		this.settings = settings;
 		if (settings.minWidth > settings.maxWidth) throw new RuntimeException("Page min width cannot be higher than max width.");
 		if (settings.minHeight > settings.maxHeight)
 			throw new RuntimeException("Page min height cannot be higher than max height.");
+
+		for (int i = 0; i < maxRects.length; i++)
+			maxRects[i] = new MaxRects();
 	}
 
 	public Array<TexturePacker.Page> pack (Array<TexturePacker.Rect> inputRects) {
+		if (Runtime.getRuntime().availableProcessors() > 1) executor = TexturePacker.newExecutor(methods.length);
+		try {
+			return packPages(inputRects);
+		} finally {
+			if (executor != null) executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	private Array<TexturePacker.Page> packPages (Array<TexturePacker.Rect> inputRects) {
 		for (int i = 0, nn = inputRects.size; i < nn; i++) {
 			TexturePacker.Rect rect = inputRects.get(i);
 			rect.width += settings.paddingX;
@@ -168,24 +186,22 @@ public class MaxRectsPacker implements TexturePacker.Packer {
 	/** @param fully If true, the only results that pack all rects will be considered. If false, all results are considered, not all
 	 *           rects may be packed. */
 	private TexturePacker.Page packAtSize (boolean fully, int width, int height, Array<TexturePacker.Rect> inputRects) {
+		TexturePacker.Page[] results = new TexturePacker.Page[methods.length];
+		if (executor == null) {
+			for (int i = 0, n = methods.length; i < n; i++)
+				results[i] = packWithMethod(i, width, height, inputRects);
+		} else {
+			Array<Future<TexturePacker.Page>> futures = new Array<Future<TexturePacker.Page>>(methods.length);
+			for (int i = 0, n = methods.length; i < n; i++)
+				futures.add(executor.submit(new PackTask(i, width, height, inputRects)));
+			for (int i = 0, n = methods.length; i < n; i++)
+				results[i] = TexturePacker.getResult(futures.get(i));
+		}
+
+		// Results are compared in heuristic order so ties are resolved the same way regardless of which task finished first.
 		TexturePacker.Page bestResult = null;
 		for (int i = 0, n = methods.length; i < n; i++) {
-			maxRects.init(width, height);
-			TexturePacker.Page result;
-			if (!settings.fast) {
-				result = maxRects.pack(inputRects, methods[i]);
-			} else {
-				Array<TexturePacker.Rect> remaining = new Array();
-				for (int ii = 0, nn = inputRects.size; ii < nn; ii++) {
-					TexturePacker.Rect rect = inputRects.get(ii);
-					if (maxRects.insert(rect, methods[i]) == null) {
-						while (ii < nn)
-							remaining.add(inputRects.get(ii++));
-					}
-				}
-				result = maxRects.getResult();
-				result.remainingRects = remaining;
-			}
+			TexturePacker.Page result = results[i];
 			if (fully && result.remainingRects.size > 0) continue;
 			if (result.outputRects.size == 0) continue;
 			bestResult = getBest(bestResult, result);
@@ -193,12 +209,48 @@ public class MaxRectsPacker implements TexturePacker.Packer {
 		return bestResult;
 	}
 
+	/** Packs rects using single heuristic, each heuristic has its own {@link MaxRects} so they can be run at the same time. */
+	private TexturePacker.Page packWithMethod (int methodIndex, int width, int height, Array<TexturePacker.Rect> inputRects) {
+		MaxRects maxRects = this.maxRects[methodIndex];
+		FreeRectChoiceHeuristic method = methods[methodIndex];
+		maxRects.init(width, height);
+		if (!settings.fast) return maxRects.pack(inputRects, method);
+
+		Array<TexturePacker.Rect> remaining = new Array();
+		for (int ii = 0, nn = inputRects.size; ii < nn; ii++) {
+			TexturePacker.Rect rect = inputRects.get(ii);
+			if (maxRects.insert(rect, method) == null) {
+				while (ii < nn)
+					remaining.add(inputRects.get(ii++));
+			}
+		}
+		TexturePacker.Page result = maxRects.getResult();
+		result.remainingRects = remaining;
+		return result;
+	}
+
 	private TexturePacker.Page getBest (TexturePacker.Page result1, TexturePacker.Page result2) {
 		if (result1 == null) return result2;
 		if (result2 == null) return result1;
 		return result1.occupancy > result2.occupancy ? result1 : result2;
 	}
 
+	private class PackTask implements Callable<TexturePacker.Page> {
+		private final int methodIndex, width, height;
+		private final Array<TexturePacker.Rect> inputRects;
+
+		public PackTask (int methodIndex, int width, int height, Array<TexturePacker.Rect> inputRects) {
+			this.methodIndex = methodIndex;
+			this.width = width;
+			this.height = height;
+			this.inputRects = inputRects;
+		}
+
+		public TexturePacker.Page call () {
+			return packWithMethod(methodIndex, width, height, inputRects);
+		}
+	}
+
 	static class BinarySearch {
 		int min, max, fuzziness, low, high, current;
 		boolean pot;
@@ -29,6 +29,12 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
@@ -45,6 +51,7 @@ import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Region;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.kotcrab.vis.editor.util.texturepacker.ImageProcessor.PreparedImage;
 
 /** @author Nathan Sweet */
 @SuppressWarnings("all")
@@ -98,12 +105,7 @@ public class TexturePacker {
 
 		for (int i = 0, n = settings.scale.length; i < n; i++) {
 			imageProcessor.setScale(settings.scale[i]);
-			for (InputImage inputImage : inputImages) {
-				if (inputImage.file != null)
-					imageProcessor.addImage(inputImage.file);
-				else
-					imageProcessor.addImage(inputImage.image, inputImage.name);
-			}
+			addImages();
 
 			Array<Page> pages = packer.pack(imageProcessor.getImages());
 
@@ -118,6 +120,54 @@ public class TexturePacker {
 		}
 	}
 
+	/** Reads and processes input images using all cores. Results are added to the image processor in input order, so rects
+	 * order and aliases are the same as when images are added one by one. */
+	private void addImages () {
+		ExecutorService executor = newExecutor(inputImages.size);
+		try {
+			Array<Future<PreparedImage>> results = new Array<Future<PreparedImage>>(inputImages.size);
+			for (final InputImage inputImage : inputImages) {
+				results.add(executor.submit(new Callable<PreparedImage>() {
+					public PreparedImage call () {
+						if (inputImage.file != null)
+							return imageProcessor.prepareImage(inputImage.file);
+						else
+							return imageProcessor.prepareImage(inputImage.image, inputImage.name);
+					}
+				}));
+			}
+
+			for (Future<PreparedImage> result : results)
+				imageProcessor.addPreparedImage(getResult(result));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** @return executor with at most one daemon thread per core and no more than specified number of threads */
+	static ExecutorService newExecutor (int maxThreads) {
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), maxThreads));
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, "TexturePacker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/** Waits for the task to finish, exceptions thrown by the task are rethrown as runtime exceptions. */
+	static <T> T getResult (Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			throw new RuntimeException("Interrupted while packing.", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) throw (RuntimeException)ex.getCause();
+			throw new RuntimeException("Error packing.", ex.getCause());
+		}
+	}
+
 	private void writeImages (File outputDir, String scaledPackFileName, Array<Page> pages) {
 		File packFileNoExt = new File(outputDir, scaledPackFileName);
 		File packDir = packFileNoExt.getParentFile();
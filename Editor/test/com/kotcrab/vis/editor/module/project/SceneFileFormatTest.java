@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2015 Pawel Pastuszak
+ *
+ * This file is part of VisEditor.
+ *
+ * VisEditor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * VisEditor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with VisEditor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.kotcrab.vis.editor.module.project;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.kotcrab.vis.editor.module.scene.EditorScene;
+import com.kotcrab.vis.editor.module.scene.EditorSceneObject;
+import com.kotcrab.vis.editor.module.scene.Object2d;
+import com.kotcrab.vis.editor.module.scene.SceneChunks;
+import com.kotcrab.vis.runtime.scene.SceneViewport;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SceneFileFormatTest {
+	private static final float DELTA = 0.0001f;
+
+	/** legacy.scene was written by editor version that stored sprite data in objects array, before chunks were introduced */
+	@Test
+	public void testReadLegacyScene () throws Exception {
+		SceneChunks chunks = SceneChunks.read(SceneIOModule.createSceneFileKryo(), readFixture("legacy.scene"));
+		assertFalse(chunks.isChunked());
+
+		EditorScene scene = chunks.readAll();
+		assertEquals(800, scene.width);
+		assertEquals(480, scene.height);
+		assertEquals(SceneViewport.FIT, scene.viewport);
+		assertLegacyObjects(scene.getObjects());
+	}
+
+	@Test
+	public void testRewriteLegacyScene () throws Exception {
+		Kryo kryo = SceneIOModule.createSceneFileKryo();
+		EditorScene legacy = SceneChunks.read(kryo, readFixture("legacy.scene")).readAll();
+
+		Output output = new Output(256, -1);
+		SceneChunks.write(kryo, output, legacy);
+
+		SceneChunks chunks = SceneChunks.read(SceneIOModule.createSceneFileKryo(), output.toBytes());
+		assertTrue(chunks.isChunked());
+		assertEquals(3, chunks.getObjectCount());
+
+		EditorScene scene = chunks.readAll();
+		assertEquals(800, scene.width);
+		assertLegacyObjects(scene.getObjects());
+	}
+
+	private void assertLegacyObjects (Array<EditorSceneObject> objects) {
+		assertEquals(3, objects.size);
+
+		String[] regions = {"gfx/a", "gfx/b", "gfx/a"};
+		for (int i = 0; i < objects.size; i++) {
+			Object2d object = (Object2d) objects.get(i);
+
+			assertEquals(regions[i], object.regionRelativePath);
+			if (i == 1)
+				assertEquals("player", object.id);
+			else
+				assertNull(object.id);
+
+			assertEquals(10 + i * 100, object.getX(), DELTA);
+			assertEquals(20 + i * 50, object.getY(), DELTA);
+			assertEquals(64, object.getWidth(), DELTA);
+			assertEquals(32, object.getHeight(), DELTA);
+			assertEquals(32, object.getOriginX(), DELTA);
+			assertEquals(16, object.getOriginY(), DELTA);
+			assertEquals(i * 15, object.getRotation(), DELTA);
+			assertEquals(1 + i, object.getScaleX(), DELTA);
+			assertEquals(1, object.getScaleY(), DELTA);
+			assertEquals(i == 2, object.isFlipX());
+			assertFalse(object.isFlipY());
+			assertColorEquals(new Color(1, 0.5f, 0.25f, 1), object.getColor());
+		}
+	}
+
+	/** Sprite color is stored as packed float, which loses lowest bit of alpha */
+	private void assertColorEquals (Color expected, Color actual) {
+		float delta = 1 / 255f;
+		assertEquals(expected.r, actual.r, delta);
+		assertEquals(expected.g, actual.g, delta);
+		assertEquals(expected.b, actual.b, delta);
+		assertEquals(expected.a, actual.a, delta);
+	}
+
+	private byte[] readFixture (String name) throws IOException {
+		InputStream input = getClass().getResourceAsStream(name);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+
+		try {
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				output.write(buffer, 0, read);
+		} finally {
+			input.close();
+		}
+
+		return output.toByteArray();
+	}
+}